@@ -1,12 +1,9 @@
 package vv3ird.populatecard;
 
-import java.awt.Color;
 import java.awt.Desktop;
 import java.awt.EventQueue;
 import java.awt.Font;
 import java.awt.FontFormatException;
-import java.awt.Graphics2D;
-import java.awt.GraphicsEnvironment;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -17,6 +14,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -26,7 +25,12 @@ import javax.swing.UnsupportedLookAndFeelException;
 
 import org.apache.commons.csv.CSVFormat;
 
+import vv3ird.populatecard.control.AdaptiveTuner;
+import vv3ird.populatecard.control.CardRenderEngine;
+import vv3ird.populatecard.control.ContactSheetRenderer;
+import vv3ird.populatecard.control.FontRegistry;
 import vv3ird.populatecard.control.ProjectManager;
+import vv3ird.populatecard.control.RenderPipeline;
 import vv3ird.populatecard.control.TaskScheduler;
 import vv3ird.populatecard.control.postprocessing.ReplaceImage;
 import vv3ird.populatecard.data.Field;
@@ -34,8 +38,11 @@ import vv3ird.populatecard.data.FieldPackage;
 import vv3ird.populatecard.data.FieldStyle;
 import vv3ird.populatecard.data.ParallelProcessing;
 import vv3ird.populatecard.data.Project;
+import vv3ird.populatecard.data.RenderQuality;
+import vv3ird.populatecard.data.text.SymbolAtlas;
 import vv3ird.populatecard.gui.JMain;
 import vv3ird.populatecard.gui.StatusListener;
+import vv3ird.populatecard.io.RenderCache;
 
 public class CardCreator {
 	
@@ -44,6 +51,11 @@ public class CardCreator {
 	 */
 	private static Project currentProject = null;
 	
+	/**
+	 * Held while contact sheets are drawn, two runs would delete and write the same pages
+	 */
+	private static final Object contactSheetLock = new Object();
+	
 	/**
 	 * Opens a project from a path object
 	 * @param projectFile	Project file
@@ -242,11 +254,26 @@ public class CardCreator {
 
 	/**
 	 * Draws the cards of a given project. Prerequisites are that a csv exists, thats the fields are mapped to csv columns.
-	 * @param p				Project the cards should be created for 
+	 * The cards are passed through a {@link RenderPipeline}, so drawing, PNG encoding and writing of the files overlap.
+	 * In {@link ParallelProcessing#ADAPTIVE} mode the render threads are tuned while drawing and the best value is kept
+	 * in the project for the next run. If there are fewer cards than render threads, the fields of each card are
+	 * drawn in parallel by the {@link CardRenderEngine}. The cards are drawn with the render scale of the project.
 	 * @param listener		Listener for updates on creation process
 	 * @throws IOException	whenever an IO error occures, the creation will be aborted
 	 */
 	public static void drawCards(StatusListener listener) throws IOException {
+		drawCards(listener, currentProject.getRenderScale());
+	}
+
+	/**
+	 * Draws the cards of a given project at the given render scale. The templates are resampled to the scale once,
+	 * fields, fonts and media are scaled while drawing, so the same project can be drawn as small proofs or as large
+	 * print output.
+	 * @param listener		Listener for updates on creation process
+	 * @param scale			Render scale, 1 draws the cards at the size of the templates
+	 * @throws IOException	whenever an IO error occures, the creation will be aborted
+	 */
+	public static void drawCards(StatusListener listener, double scale) throws IOException {
 		Path output = currentProject.getProjectRoot().resolve("output");
 		if (!Files.exists(output)) {
 			Files.createDirectories(output);
@@ -254,82 +281,45 @@ public class CardCreator {
 		List<String> mappedFields = currentProject.getMappedFields();
 		String[][] csvData = currentProject.getCsvData();
 		String zeroes = "%0" + String.valueOf(csvData.length).length() + "d";
+		ExecutorService io = TaskScheduler.acquireIoExecutor();
+		RenderPipeline pipeline = new RenderPipeline(currentProject.getParallelProcessingThreads(),
+				currentProject.getEncodeThreads(), currentProject.getWriteThreads(), io, listener);
+		AdaptiveTuner tuner = null;
+		if (currentProject.getProcessingMode() == ParallelProcessing.ADAPTIVE) {
+			tuner = new AdaptiveTuner(currentProject.getParallelProcessingThreads(), AdaptiveTuner.getDefaultMaxThreads(), csvData.length);
+			pipeline.setTuner(tuner);
+		}
+		boolean parallelFields = csvData.length < currentProject.getParallelProcessingThreads()
+				|| csvData.length < Runtime.getRuntime().availableProcessors();
+		FieldPackage fp = currentProject.getFp();
+		RenderQuality quality = currentProject.getRenderQuality();
+		BufferedImage frontTemplate = fp.getScaledImage(fp.getFrontImage(), scale, quality);
+		BufferedImage rearTemplate = fp.getScaledImage(fp.getRearImage(), scale, quality);
 		int card = 1;
-		for (String[] csvEntry : csvData) {
-			final int cardNo = card++;
-			TaskScheduler		.addTask("Drawing card (" + cardNo + "/" + csvData.length +")", 
-				new Runnable() {
-					@Override
-					public void run() {
-						String filenameFront = new String(currentProject.getFileNameTemplate());
-						String filenameRear = new String(currentProject.getFileNameTemplate());
-						BufferedImage front = CardCreator.getFrontImageCopy();
-						BufferedImage rear = CardCreator.getRearImageCopy();
-						Graphics2D gFront = front.createGraphics();
-						gFront.setColor(Color.BLACK);
-						Graphics2D gRear = rear.createGraphics();
-						gRear.setColor(Color.BLACK);
-						listener.setText("Drawing card (" + cardNo + "/" + csvData.length +")");
-						Map<String, String> entry = new HashMap<>();
-						for (String fieldName : currentProject.getCsvHeader().keySet()) {
-							int columnIndex = currentProject.getCsvColumnIndex(fieldName);
-							entry.put(fieldName, csvEntry[columnIndex]);
-						}
-						List<Field> calcFields = currentProject.getCalculatedFields();
-						for (String fieldName : mappedFields) {
-							Field field = currentProject.getFieldByName(fieldName);
-							int columnIndex = currentProject.getMappedCsvColumnIndex(fieldName);
-							if(field != null && columnIndex >= 0 && columnIndex < csvEntry.length) {
-								try {
-								Font font = ProjectManager.getFont(currentProject, field.getFont());
-								String content = csvEntry[columnIndex];
-								filenameFront = filenameFront.replace("{" + currentProject.getCsvColumn(fieldName) + "}", content.replace("/", "_").replace("*", "_"));
-								filenameRear = filenameRear.replace("{" + currentProject.getCsvColumn(fieldName) + "}", content.replace("/", "_").replace("*", "_"));
-								field.drawContent(gFront, gRear, content, entry);
-								// Remove calculated field, if it already has been processed
-								if(field.isCalculated())
-									calcFields.remove(calcFields.indexOf(field));
-								} catch (Exception e) {
-									listener.setText("Error drawing on field " +field.getName() + ": " +e.getMessage());
-									e.printStackTrace();
-								}
-							}
-						}
-						// Process all calculated fields, that have no CSV column mapped
-						for (Field field : calcFields) {
-							field.drawContent(gFront, gRear, "", entry);
-						}
-						gFront.dispose();
-						gRear.dispose();
-						filenameFront = filenameFront.replace("{no}", String.format(zeroes, cardNo));
-						if (filenameFront.contains("{side}")) {
-							filenameFront = filenameFront.replace("{side}", "front");
-							filenameRear = filenameRear.replace("{no}", String.format(zeroes, cardNo));
-							filenameRear = filenameRear.replace("{side}", "rear");
-						}
-						else {
-							filenameRear = filenameRear.replace("{no}", String.valueOf(cardNo));
-						}
-						if (!filenameRear.toLowerCase().endsWith(".png"))
-							filenameRear = filenameRear + ".png";
-						if (!filenameFront.toLowerCase().endsWith(".png"))
-							filenameFront = filenameFront + ".png";
-						try {
-							ImageIO.write(front, "PNG", output.resolve(filenameFront).toFile());
-							ImageIO.write(rear, "PNG", output.resolve(filenameRear).toFile());
-						} catch (IOException e) {
-							listener.setText("Error drawing card (" + cardNo + "/" + csvData.length + ")");
-							e.printStackTrace();
-						}
-						
-					}
-				}, 
-				listener
-			);
+		try {
+			for (String[] csvEntry : csvData) {
+				final int cardNo = card++;
+				pipeline.submit(() -> drawCard(csvEntry, cardNo, csvData.length, zeroes, output, mappedFields, frontTemplate,
+						rearTemplate, scale, parallelFields, listener));
+			}
+			pipeline.finish();
+		} catch (InterruptedException e) {
+			pipeline.cancel();
+			Thread.currentThread().interrupt();
+			throw new IOException("Drawing cards was interrupted", e);
+		} finally {
+			TaskScheduler.releaseIoExecutor(io);
 		}
+		String report = pipeline.getReport() + " | quality: " + quality + " | scale: " + scale;
+		if (tuner != null) {
+			currentProject.setAdaptiveThreadsHint(tuner.getBestThreads());
+			report += " | " + tuner.getReport();
+		}
+		System.out.println(report);
+		listener.setText(report);
 		if (CardCreator.getAlternateRearImage() != null)
 			TaskScheduler.addTask("Swap empty rear image with alternate", new ReplaceImage(CardCreator.getOutputFolder(),
-							CardCreator.getRearImageCopy(), CardCreator.getAlternateRearImage(), listener),
+							fp.getImageCopy(rearTemplate), fp.getScaledImage(CardCreator.getAlternateRearImage(), scale, quality), listener),
 							listener, true);
 		TaskScheduler.addTask("Open output folder", new Runnable() {
 			public void run() {
@@ -345,6 +335,182 @@ public class CardCreator {
 		
 	}
 
+	/**
+	 * Draws a single csv row onto copies of the card templates and resolves the
+	 * files the front and rear image should be written to.
+	 * 
+	 * @param csvEntry		CSV row to be drawn
+	 * @param cardNo		Number of the card, starting with 1
+	 * @param cardCount		Number of cards that will be drawn
+	 * @param zeroes		Format for the zero padded card number
+	 * @param output		Output folder
+	 * @param mappedFields	Names of the fields mapped to a csv column
+	 * @param frontTemplate	Front template, resampled to the render scale
+	 * @param rearTemplate	Rear template, resampled to the render scale
+	 * @param scale			Render scale
+	 * @param parallelFields	Flag if the fields of the card should be drawn in parallel
+	 * @param listener		Listener for updates on creation process
+	 * @return The drawn images with their target files
+	 */
+	private static RenderPipeline.RenderedCard drawCard(String[] csvEntry, int cardNo, int cardCount, String zeroes,
+			Path output, List<String> mappedFields, BufferedImage frontTemplate, BufferedImage rearTemplate, double scale,
+			boolean parallelFields, StatusListener listener) {
+		String filenameFront = getFileName(csvEntry, mappedFields);
+		String filenameRear = filenameFront;
+		BufferedImage front = currentProject.getFp().getImageCopy(frontTemplate);
+		BufferedImage rear = currentProject.getFp().getImageCopy(rearTemplate);
+		listener.setText("Drawing card (" + cardNo + "/" + cardCount +")");
+		Map<String, String> entry = new HashMap<>();
+		for (String fieldName : currentProject.getCsvHeader().keySet()) {
+			int columnIndex = currentProject.getCsvColumnIndex(fieldName);
+			entry.put(fieldName, csvEntry[columnIndex]);
+		}
+		List<CardRenderEngine.FieldJob> jobs = getFieldJobs(csvEntry, mappedFields);
+		CardRenderEngine.draw(front, rear, jobs, entry, parallelFields && CardRenderEngine.isParallelWorthwhile(jobs.size()), scale,
+				listener);
+		filenameFront = filenameFront.replace("{no}", String.format(zeroes, cardNo));
+		if (filenameFront.contains("{side}")) {
+			filenameFront = filenameFront.replace("{side}", "front");
+			filenameRear = filenameRear.replace("{no}", String.format(zeroes, cardNo));
+			filenameRear = filenameRear.replace("{side}", "rear");
+		}
+		else {
+			filenameRear = filenameRear.replace("{no}", String.valueOf(cardNo));
+		}
+		if (!filenameRear.toLowerCase().endsWith(".png"))
+			filenameRear = filenameRear + ".png";
+		if (!filenameFront.toLowerCase().endsWith(".png"))
+			filenameFront = filenameFront + ".png";
+		return new RenderPipeline.RenderedCard("Card (" + cardNo + "/" + cardCount + ")",
+				new BufferedImage[] { front, rear },
+				new Path[] { output.resolve(filenameFront), output.resolve(filenameRear) });
+	}
+
+	/**
+	 * Draws every csv row at thumbnail scale and tiles the cards into paged contact sheets in the contact sheet folder
+	 * of the project. The templates are resampled once and the cards are drawn directly at thumbnail size, nothing is
+	 * drawn at full size, so the contact sheets can be drawn again whenever the csv changes. The rear sides are only
+	 * shown, if there are fields on the rear side. The cards are drawn on the render threads of a {@link RenderPipeline}.
+	 * Only one run draws contact sheets at a time, a second run waits for the first one.
+	 * @param listener		Listener for updates on creation process
+	 * @return Files of the contact sheets, empty if there is no csv data or a template is missing, the reason is passed
+	 *         to the listener
+	 * @throws IOException	whenever drawing is interrupted or a contact sheet could not be written
+	 */
+	public static List<Path> drawContactSheets(StatusListener listener) throws IOException {
+		synchronized (contactSheetLock) {
+			return drawContactSheetPages(listener);
+		}
+	}
+
+	private static List<Path> drawContactSheetPages(StatusListener listener) throws IOException {
+		FieldPackage fp = currentProject.getFp();
+		String missing = !currentProject.hasCsvData() ? "no csv data"
+				: fp.getFrontImage() == null ? "no front image" : fp.getRearImage() == null ? "no rear image" : null;
+		if (missing != null) {
+			String status = "No contact sheets drawn, the project has " + missing;
+			System.out.println(status);
+			listener.setText(status);
+			return new ArrayList<>();
+		}
+		long start = System.currentTimeMillis();
+		List<String> mappedFields = currentProject.getMappedFields();
+		String[][] csvData = currentProject.getCsvData();
+		double scale = ContactSheetRenderer.getScale(fp.getFrontImage());
+		RenderQuality quality = currentProject.getRenderQuality();
+		BufferedImage frontTemplate = fp.getScaledImage(fp.getFrontImage(), scale, quality);
+		BufferedImage rearTemplate = fp.getScaledImage(fp.getRearImage(), scale, quality);
+		boolean drawRear = !fp.getRearFields().isEmpty();
+		ContactSheetRenderer sheets = new ContactSheetRenderer(getContactSheetFolder(), csvData.length,
+				frontTemplate.getWidth(), frontTemplate.getHeight(), drawRear);
+		ExecutorService io = TaskScheduler.acquireIoExecutor();
+		RenderPipeline pipeline = new RenderPipeline(currentProject.getParallelProcessingThreads(),
+				currentProject.getEncodeThreads(), currentProject.getWriteThreads(), io, listener);
+		try {
+			for (int i = 0; i < csvData.length; i++) {
+				final int cardNo = i + 1;
+				final String[] csvEntry = csvData[i];
+				pipeline.submit(() -> {
+					listener.setText("Drawing contact sheets (" + cardNo + "/" + csvData.length + ")");
+					// Without rear fields nothing is drawn on the rear side, the template is not copied
+					BufferedImage front = fp.getImageCopy(frontTemplate);
+					BufferedImage rear = drawRear ? fp.getImageCopy(rearTemplate) : rearTemplate;
+					Map<String, String> entry = new HashMap<>();
+					for (String fieldName : currentProject.getCsvHeader().keySet()) {
+						int columnIndex = currentProject.getCsvColumnIndex(fieldName);
+						entry.put(fieldName, csvEntry[columnIndex]);
+					}
+					CardRenderEngine.draw(front, rear, getFieldJobs(csvEntry, mappedFields), entry, false, scale, listener);
+					sheets.addCard(cardNo - 1, "#" + cardNo, front, rear);
+					// The cards are only tiled into the contact sheets, nothing is passed to the encode stage
+					return null;
+				});
+			}
+			pipeline.finish();
+		} catch (InterruptedException e) {
+			pipeline.cancel();
+			Thread.currentThread().interrupt();
+			throw new IOException("Drawing contact sheets was interrupted", e);
+		} finally {
+			TaskScheduler.releaseIoExecutor(io);
+		}
+		List<Path> pages = sheets.finish();
+		String report = "Drew " + pipeline.getRenderedCount() + " cards on " + pages.size() + " contact sheets in "
+				+ (System.currentTimeMillis() - start) + " ms | scale: " + scale
+				+ (pipeline.getFailedCount() > 0 ? " | " + pipeline.getFailedCount() + " errors" : "");
+		System.out.println(report);
+		listener.setText(report);
+		return pages;
+	}
+
+	/**
+	 * Returns the fields of a csv row with their content, the calculated fields without a mapped csv column last.
+	 * 
+	 * @param csvEntry		CSV row to be drawn
+	 * @param mappedFields	Names of the fields mapped to a csv column
+	 * @return Fields in drawing order
+	 */
+	private static List<CardRenderEngine.FieldJob> getFieldJobs(String[] csvEntry, List<String> mappedFields) {
+		List<Field> calcFields = currentProject.getCalculatedFields();
+		List<CardRenderEngine.FieldJob> jobs = new ArrayList<>(mappedFields.size() + calcFields.size());
+		for (String fieldName : mappedFields) {
+			Field field = currentProject.getFieldByName(fieldName);
+			int columnIndex = currentProject.getMappedCsvColumnIndex(fieldName);
+			if(field != null && columnIndex >= 0 && columnIndex < csvEntry.length) {
+				jobs.add(new CardRenderEngine.FieldJob(field, csvEntry[columnIndex]));
+				// Remove calculated field, if it already has been processed
+				if(field.isCalculated())
+					calcFields.remove(field);
+			}
+		}
+		// Process all calculated fields, that have no CSV column mapped
+		for (Field field : calcFields) {
+			jobs.add(new CardRenderEngine.FieldJob(field, ""));
+		}
+		return jobs;
+	}
+
+	/**
+	 * Returns the file name template of the project with the csv column placeholders replaced by the content of a csv
+	 * row. The placeholders {no} and {side} are left for the caller.
+	 * 
+	 * @param csvEntry		CSV row to be drawn
+	 * @param mappedFields	Names of the fields mapped to a csv column
+	 * @return File name of the card
+	 */
+	private static String getFileName(String[] csvEntry, List<String> mappedFields) {
+		String filename = currentProject.getFileNameTemplate();
+		for (String fieldName : mappedFields) {
+			Field field = currentProject.getFieldByName(fieldName);
+			int columnIndex = currentProject.getMappedCsvColumnIndex(fieldName);
+			if(field != null && columnIndex >= 0 && columnIndex < csvEntry.length) {
+				String content = csvEntry[columnIndex];
+				filename = filename.replace("{" + currentProject.getCsvColumn(fieldName) + "}", content.replace("/", "_").replace("*", "_"));
+			}
+		}
+		return filename;
+	}
+
 	/**
 	 * Returns a copy of the rear image
 	 * 
@@ -365,7 +531,8 @@ public class CardCreator {
 
 	/**
 	 * Draws a card of a given project. Prerequisites are that a csv exists,
-	 * thats the fields are mapped to csv columns.
+	 * thats the fields are mapped to csv columns. The fields are drawn in
+	 * parallel by the {@link CardRenderEngine}, if multiple processors are available.
 	 * 
 	 * @param cardNo 	Number of the card that should be created
 	 * @param listener	Listener for updates on creation process
@@ -376,6 +543,21 @@ public class CardCreator {
 	 *             is smaller than 0 or greater than the number of csv rows.
 	 */
 	public static BufferedImage[] createCard(int cardNo, StatusListener listener, List<Field> overrides) {
+		return createCard(cardNo, listener, overrides, 1);
+	}
+
+	/**
+	 * Draws a card of a given project at the given render scale, see
+	 * {@link #createCard(int, StatusListener, List)}.
+	 * 
+	 * @param cardNo 	Number of the card that should be created
+	 * @param listener	Listener for updates on creation process
+	 * @param overrides	Fields to be drawn instead of the fields of the project, may be null
+	 * @param scale		Render scale, 1 draws the card at the size of the templates
+	 * @return Returns an array with the front image at index 0 and the rear image
+	 *         at index 1.
+	 */
+	public static BufferedImage[] createCard(int cardNo, StatusListener listener, List<Field> overrides, double scale) {
 		if(currentProject == null || !currentProject.hasCsvData())
 			return null;
 		Map<String, Field> fields = (overrides != null ? overrides : currentProject.getFp().getFields()).stream().collect(Collectors.toMap(Field::getName, Function.identity()));
@@ -383,12 +565,9 @@ public class CardCreator {
 		String[][] csvData = currentProject.getCsvData();
 		if(listener != null) listener.setText("Drawing card (0/" + csvData.length +")");
 		String[] csvEntry = csvData[cardNo];
-		BufferedImage front = currentProject.getFp().getFrontImageCopy();
-		BufferedImage rear = currentProject.getFp().getRearImageCopy();
-		Graphics2D gFront = front.createGraphics();
-		gFront.setColor(Color.BLACK);
-		Graphics2D gRear = rear.createGraphics();
-		gRear.setColor(Color.BLACK);
+		FieldPackage fp = currentProject.getFp();
+		BufferedImage front = fp.getImageCopy(fp.getScaledImage(fp.getFrontImage(), scale, currentProject.getRenderQuality()));
+		BufferedImage rear = fp.getImageCopy(fp.getScaledImage(fp.getRearImage(), scale, currentProject.getRenderQuality()));
 		if(listener != null) listener.setText("Drawing cards (" + cardNo + "/" + csvData.length +")");
 		Map<String, String> entry = new HashMap<>();
 		for (String fieldName : currentProject.getCsvHeader().keySet()) {
@@ -396,22 +575,17 @@ public class CardCreator {
 			entry.put(fieldName, csvEntry[columnIndex]);
 		}
 		List<Field> drawnFields = new ArrayList<Field>(fields.size());
+		List<CardRenderEngine.FieldJob> jobs = new ArrayList<>(fields.size());
 		for (String fieldName : mappedFields) {
 			Field field = fields.get(fieldName);
 			int columnIndex = currentProject.getMappedCsvColumnIndex(fieldName);
 			if(field != null && columnIndex >= 0 && columnIndex < csvEntry.length) {
-				try {
-					Font font = ProjectManager.getFont(currentProject, field.getFont());
-					String content = csvEntry[columnIndex];
-					System.out.println();
-					System.out.println("Drawing Content: " + content);
-					field.drawContent(gFront, gRear, content, entry);
-					// Remove calculated field, if it already has been processed
-					drawnFields.add(field);
-				} catch (Exception e) {
-					if(listener != null) listener.setText("Error drawing on field " +field.getName() + ": " +e.getMessage());
-					e.printStackTrace();
-				}
+				String content = csvEntry[columnIndex];
+				System.out.println();
+				System.out.println("Drawing Content: " + content);
+				jobs.add(new CardRenderEngine.FieldJob(field, content));
+				// Remove calculated field, if it already has been processed
+				drawnFields.add(field);
 			}
 		}
 		// Draw all calculated fields, that have no CSV comlumn mapped
@@ -420,10 +594,9 @@ public class CardCreator {
 			calcFields = overrides.stream().filter(f -> f.isCalculated()).collect(Collectors.toList());
 		calcFields.removeAll(drawnFields);
 		for (Field field : calcFields) {
-			field.drawContent(gFront, gRear, "", entry);
+			jobs.add(new CardRenderEngine.FieldJob(field, ""));
 		}
-		gFront.dispose();
-		gRear.dispose();
+		CardRenderEngine.draw(front, rear, jobs, entry, CardRenderEngine.isParallelWorthwhile(jobs.size()), scale, listener);
 		
 		BufferedImage[] imgs = new BufferedImage[2];
 		
@@ -517,7 +690,7 @@ public class CardCreator {
 		String[] sfonts = ProjectManager.getSystemFonts();
 		String[] pfonts = new String[0];
 		if (currentProject != null) {
-			pfonts  = currentProject.getFonts().keySet().toArray(new String[currentProject.getFonts().keySet().size()]);
+			pfonts  = currentProject.getFontNames().toArray(new String[0]);
 			System.out.println("Project Fonts: " + pfonts.length);
 		}
 		String[] fonts = new String[pfonts.length+sfonts.length];
@@ -536,10 +709,10 @@ public class CardCreator {
 	 * @return Map with all fonts installed on the system.
 	 */
 	public static Map<String, Font> getSystemFonts() {
-		String[] fontNames = GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
+		String[] fontNames = FontRegistry.getSystemFontFamilies();
 		Map<String, Font> fonts = new HashMap<>();
 		for (int i = 0; i < fontNames.length; i++) {
-			fonts.put(fontNames[i], Font.getFont(fontNames[i]));
+			fonts.put(fontNames[i], FontRegistry.getSystemFont(fontNames[i]));
 		}
 		return fonts;
 	}
@@ -552,6 +725,64 @@ public class CardCreator {
 		return currentProject != null ? currentProject.getProjectRoot().resolve("output") : null;
 	}
 
+	/**
+	 * Returns the contact sheet folder of the current project.
+	 * @return Path to the contact sheets of the current project.
+	 */
+	public static Path getContactSheetFolder() {
+		return currentProject != null ? currentProject.getProjectRoot().resolve(ContactSheetRenderer.CONTACT_SHEET_FOLDER) : null;
+	}
+
+	/**
+	 * Returns the render cache of the current project.
+	 * @return Render cache of the current project, or null, if no project is opened.
+	 */
+	public static RenderCache getRenderCache() {
+		return currentProject != null ? currentProject.getRenderCache() : null;
+	}
+
+	/**
+	 * Returns the quality profile the cards are drawn with.
+	 * @return Render quality of the current project, {@link RenderQuality#NORMAL} if no project is opened.
+	 */
+	public static RenderQuality getRenderQuality() {
+		return currentProject != null ? currentProject.getRenderQuality() : RenderQuality.NORMAL;
+	}
+
+	/**
+	 * Sets the quality profile the cards are drawn with.
+	 * @param quality	Render quality, draft for fast proofing runs, final for print
+	 */
+	public static void setRenderQuality(RenderQuality quality) {
+		if (hasCurrentProject())
+			currentProject.setRenderQuality(quality != null ? quality : RenderQuality.NORMAL);
+	}
+
+	/**
+	 * Returns the factor the cards are drawn with.
+	 * @return Render scale of the current project, 1 if no project is opened.
+	 */
+	public static double getRenderScale() {
+		return currentProject != null ? currentProject.getRenderScale() : 1;
+	}
+
+	/**
+	 * Returns the factor set for the current project.
+	 * @return Render scale, 0 if it is chosen by the render quality or no project is opened.
+	 */
+	public static double getRenderScaleSetting() {
+		return currentProject != null ? currentProject.getRenderScaleSetting() : 0;
+	}
+
+	/**
+	 * Sets the factor the cards are drawn with.
+	 * @param scale	Render scale, 0 to choose it by the render quality
+	 */
+	public static void setRenderScale(double scale) {
+		if (hasCurrentProject())
+			currentProject.setRenderScale(scale);
+	}
+
 	/**
 	 * Reutrns all fields created in the current project
 	 * @return	List with all Fields of the current project.
@@ -573,20 +804,41 @@ public class CardCreator {
 	 * Returns the font associated with the given name
 	 * 
 	 * @param font	Font name for the font to be retrieved.
-	 * @return Font associated with the font name or the default font, if no project
-	 *         is opened.
+	 * @return Font of the current project or system font associated with the font
+	 *         name, or the default font, if there is no such font.
 	 */
 	public static Font getFont(String font) {
-		return currentProject != null ? currentProject.getFont(font) : ProjectManager.getDefaultFont();
+		return ProjectManager.getFont(currentProject, font);
 	}
 
 	/**
-	 * Exports the currently opened project into an gzip-archive
+	 * Imports a symbol into the current project
+	 * 
+	 * @param symbolPath	Image file of the symbol
+	 * @return Name of the symbol
+	 * @throws IOException	IO Error copying the file, or if the file is not a readable image
+	 */
+	public static String importSymbol(Path symbolPath) throws IOException {
+		return ProjectManager.importSymbol(currentProject, symbolPath);
+	}
+
+	/**
+	 * Returns the symbols of the current project
+	 * 
+	 * @return Symbol atlas, or null, if no project is opened
+	 */
+	public static SymbolAtlas getSymbolAtlas() {
+		return currentProject != null ? currentProject.getSymbolAtlas() : null;
+	}
+
+	/**
+	 * Exports the currently opened project into a zip-archive
 	 * @param exportFile	File to export the current project to.
+	 * @param includeOutput	Flag if the created cards should be exported as well.
 	 * @return	Path to the archive.
 	 */
-	public static Path exportProject(Path exportFile) {
-		return ProjectManager.exportProject(currentProject, exportFile);
+	public static Path exportProject(Path exportFile, boolean includeOutput) {
+		return ProjectManager.exportProject(currentProject, exportFile, includeOutput);
 	}
 
 	/**
@@ -598,6 +850,15 @@ public class CardCreator {
 		return currentProject != null ? currentProject.getFonts() : null;
 	}
 
+	/**
+	 * Returns the names of all fonts imported into the project, without loading the fonts
+	 * 
+	 * @return	Names of the fonts imported into the project or null, if no project is open.
+	 */
+	public static Set<String> getProjectFontNames() {
+		return currentProject != null ? currentProject.getFontNames() : null;
+	}
+
 	/**
 	 * Reutrns the woring dir of the program
 	 * @return	Path to the working dir of the program.
@@ -619,7 +880,31 @@ public class CardCreator {
 			currentProject.setCustomParallelProcessingThreads(value);
 			currentProject.setProcessingMode(pp);
 		}
-		TaskScheduler.changeThreadCount(pp == ParallelProcessing.CPU_MINUS_ONE ? Runtime.getRuntime().availableProcessors()-1 : pp == ParallelProcessing.SINGLE_THREAD ? 1 : value);
+		TaskScheduler.changeThreadCount(hasCurrentProject() ? currentProject.getParallelProcessingThreads() : pp.getThreads(value));
+		TaskScheduler.setVirtualThreadIo(pp == ParallelProcessing.VIRTUAL_THREAD_IO);
+	}
+
+
+	/**
+	 * Sets the parallelism of the encode and write stage used when drawing cards.
+	 * @param encodeThreads	Threads used to PNG encode the cards, 0 for automatic
+	 * @param writeThreads	Threads used to write the cards to disk, 0 for automatic
+	 */
+	public static void setPipelineThreads(int encodeThreads, int writeThreads) {
+		if (hasCurrentProject()) {
+			currentProject.setEncodeThreads(encodeThreads > 0 ? encodeThreads : 0);
+			currentProject.setWriteThreads(writeThreads > 0 ? writeThreads : 0);
+		}
+	}
+
+
+	public static int getCustomEncodeThreads() {
+		return hasCurrentProject() ? currentProject.getCustomEncodeThreads() : 0;
+	}
+
+
+	public static int getCustomWriteThreads() {
+		return hasCurrentProject() ? currentProject.getCustomWriteThreads() : 0;
 	}
 
 
@@ -0,0 +1,203 @@
+package vv3ird.populatecard.control;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+
+/**
+ * Finds the number of render threads with the highest throughput while a job is
+ * running. The throughput is measured over windows of finished cards. After each
+ * window the thread count is moved one step in the current direction as long as
+ * the throughput improves (hill climbing). If the heap still in use after the
+ * last garbage collection exceeds the memory budget, the thread count is
+ * reduced and not raised again. Garbage that has not been collected yet is not
+ * counted, so allocations while drawing do not trip the budget. Tuning only takes
+ * place during the first part of the job, afterwards the best thread count found
+ * is kept.
+ *
+ * @author VV3IRD
+ *
+ */
+public class AdaptiveTuner {
+
+	/**
+	 * Minimum number of cards in a measuring window
+	 */
+	private static final int MIN_WINDOW_CARDS = 4;
+
+	/**
+	 * Relative throughput gain needed to accept a step
+	 */
+	private static final double MIN_GAIN = 0.05;
+
+	/**
+	 * Share of the maximum heap that may be used while rendering
+	 */
+	private static final double MEMORY_BUDGET = 0.8;
+
+	/**
+	 * Share of the cards of a job that may be used for tuning
+	 */
+	private static final double TUNING_SHARE = 0.5;
+
+	private final int tuningCards;
+
+	private int maxThreads;
+
+	private int threads;
+
+	private int bestThreads;
+
+	private double bestRate = 0;
+
+	private int direction = 1;
+
+	private boolean settled = false;
+
+	private boolean memoryLimited = false;
+
+	/**
+	 * Number of measuring windows the thread count was tuned with
+	 */
+	private int windows = 0;
+
+	/**
+	 * Reason the tuning ended, null while tuning
+	 */
+	private String settleReason = null;
+
+	private int cards = 0;
+
+	private int windowCards = 0;
+
+	private long windowStart = 0;
+
+	/**
+	 * Creates a tuner for a job.
+	 *
+	 * @param startThreads	Thread count to start with, e.g. the hint learned by the last job
+	 * @param maxThreads	Upper limit for the thread count
+	 * @param cardCount		Number of cards of the job
+	 */
+	public AdaptiveTuner(int startThreads, int maxThreads, int cardCount) {
+		this.maxThreads = Math.max(1, maxThreads);
+		this.threads = Math.min(Math.max(1, startThreads), this.maxThreads);
+		this.bestThreads = this.threads;
+		this.tuningCards = (int) (cardCount * TUNING_SHARE);
+		this.settled = tuningCards < MIN_WINDOW_CARDS * 2;
+		if (settled)
+			this.settleReason = "too few cards to tune";
+	}
+
+	/**
+	 * Returns the default upper limit for the render threads: two per core, as
+	 * drawing cards also waits on reading media files.
+	 *
+	 * @return Maximum number of render threads
+	 */
+	public static int getDefaultMaxThreads() {
+		return Runtime.getRuntime().availableProcessors() * 2;
+	}
+
+	/**
+	 * Records a finished card and returns the thread count that should be used
+	 * from now on.
+	 *
+	 * @return Number of render threads
+	 */
+	public synchronized int cardFinished() {
+		long now = System.nanoTime();
+		if (windowStart == 0)
+			windowStart = now;
+		cards++;
+		windowCards++;
+		if (settled)
+			return threads;
+		if (cards >= tuningCards) {
+			settle("tuning phase over");
+			return threads;
+		}
+		if (windowCards < Math.max(MIN_WINDOW_CARDS, threads * 2))
+			return threads;
+		double seconds = (now - windowStart) / 1_000_000_000d;
+		double rate = seconds > 0 ? windowCards / seconds : 0;
+		windowCards = 0;
+		windowStart = now;
+		step(rate, getHeapUsage());
+		return threads;
+	}
+
+	/**
+	 * Moves the thread count after a measuring window.
+	 */
+	private void step(double rate, double heapUsage) {
+		windows++;
+		if (heapUsage > MEMORY_BUDGET) {
+			memoryLimited = true;
+			maxThreads = Math.max(1, threads - 1);
+			bestThreads = Math.min(bestThreads, maxThreads);
+			settle("memory budget exceeded");
+		} else if (rate > bestRate * (1 + MIN_GAIN)) {
+			bestRate = rate;
+			bestThreads = threads;
+			int next = threads + direction;
+			if (next < 1 || next > maxThreads)
+				settle("limit reached");
+			else
+				threads = next;
+		} else if (direction > 0 && bestThreads > 1 && threads > bestThreads) {
+			// Going up did not help, try fewer threads than the best so far
+			direction = -1;
+			threads = bestThreads - 1;
+		} else {
+			settle("no further gain");
+		}
+	}
+
+	private void settle(String reason) {
+		settled = true;
+		threads = bestThreads;
+		settleReason = reason;
+	}
+
+	/**
+	 * Returns the share of the heap used by live data, measured by the last
+	 * collection of the tenured pool. If there is no tenured pool, the
+	 * collection usage of all heap pools is summed up.
+	 */
+	private static double getHeapUsage() {
+		long used = 0;
+		long tenured = -1;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			MemoryUsage usage = pool.getType() == MemoryType.HEAP && pool.isValid() ? pool.getCollectionUsage() : null;
+			if (usage == null)
+				continue;
+			used += usage.getUsed();
+			String name = pool.getName();
+			if (name.contains("Old") || name.contains("Tenured"))
+				tenured = Math.max(tenured, 0) + usage.getUsed();
+		}
+		return (tenured >= 0 ? tenured : used) / (double) Runtime.getRuntime().maxMemory();
+	}
+
+	/**
+	 * Returns the thread count with the best measured throughput.
+	 *
+	 * @return Number of render threads
+	 */
+	public synchronized int getBestThreads() {
+		return bestThreads;
+	}
+
+	/**
+	 * Returns a short summary of the tuning result.
+	 *
+	 * @return Summary of the tuning
+	 */
+	public synchronized String getReport() {
+		return String.format("adaptive: %d threads%s, %d windows%s%s", bestThreads,
+				bestRate > 0 ? String.format(", best %.1f cards/s", bestRate) : "", windows,
+				memoryLimited ? ", limited by memory" : "", settleReason != null ? " (" + settleReason + ")" : "");
+	}
+}
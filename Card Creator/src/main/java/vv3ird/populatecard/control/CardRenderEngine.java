@@ -0,0 +1,305 @@
+package vv3ird.populatecard.control;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import vv3ird.populatecard.data.Field;
+import vv3ird.populatecard.data.Field.CardSide;
+import vv3ird.populatecard.gui.StatusListener;
+
+/**
+ * Draws the fields of a single card. Serially every field is drawn directly onto
+ * the card images in field order. In parallel every field, together with the
+ * fields linked to it, is drawn on its own transparent layer per card side by a
+ * ForkJoin task. A layer covers the whole card side, so text and images that
+ * overflow their field are drawn the same as serially and not cut off.
+ * Afterwards the front and the rear layers are composited concurrently onto the
+ * card images in field order, so overlapping fields look the same as when drawn
+ * serially. The fields are drawn in windows of {@link #LAYER_WINDOW} fields, a
+ * window is composited and its layers are released before the next one is
+ * drawn, so the memory for layers does not grow with the number of fields.<br>
+ * Cards can be drawn at another resolution than the template. The fields stay
+ * in template coordinates, the graphics are scaled by the render scale, so
+ * fonts, positions and media follow.
+ *
+ * @author VV3IRD
+ *
+ */
+public class CardRenderEngine {
+
+	/**
+	 * Number of field chains drawn on layers at the same time, each needs up to
+	 * two layers of the size of the card
+	 */
+	private static final int LAYER_WINDOW = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+	private static ForkJoinPool pool = null;
+
+	/**
+	 * Content to be drawn on a field.
+	 */
+	public static class FieldJob {
+
+		private final Field field;
+
+		private final String content;
+
+		public FieldJob(Field field, String content) {
+			this.field = field;
+			this.content = content;
+		}
+
+		public Field getField() {
+			return field;
+		}
+
+		public String getContent() {
+			return content;
+		}
+	}
+
+	/**
+	 * Returns if drawing the fields of a card in parallel is worthwhile.
+	 *
+	 * @param jobs	Number of fields to be drawn
+	 * @return <code>true</code> if there are multiple fields and processors
+	 */
+	public static boolean isParallelWorthwhile(int jobs) {
+		return jobs > 1 && Runtime.getRuntime().availableProcessors() > 1;
+	}
+
+	/**
+	 * Draws the given fields onto the card images.
+	 *
+	 * @param front		Front image of the card
+	 * @param rear		Rear image of the card
+	 * @param jobs		Fields with their content, in drawing order
+	 * @param rowData	CSV row of the card, used by calculated fields
+	 * @param parallel	Flag if the fields should be drawn in parallel
+	 * @param listener	Listener for error messages, can be null
+	 */
+	public static void draw(BufferedImage front, BufferedImage rear, List<FieldJob> jobs, Map<String, String> rowData,
+			boolean parallel, StatusListener listener) {
+		draw(front, rear, jobs, rowData, parallel, 1, listener);
+	}
+
+	/**
+	 * Draws the given fields onto card images rendered at the given scale.
+	 *
+	 * @param front		Front image of the card, scaled template
+	 * @param rear		Rear image of the card, scaled template
+	 * @param jobs		Fields with their content, in drawing order
+	 * @param rowData	CSV row of the card, used by calculated fields
+	 * @param parallel	Flag if the fields should be drawn in parallel
+	 * @param scale		Card pixels per template pixel
+	 * @param listener	Listener for error messages, can be null
+	 */
+	public static void draw(BufferedImage front, BufferedImage rear, List<FieldJob> jobs, Map<String, String> rowData,
+			boolean parallel, double scale, StatusListener listener) {
+		if (parallel && jobs.size() > 1)
+			getPool().invoke(new CardTask(front, rear, jobs, rowData, scale, listener));
+		else
+			drawSerial(front, rear, jobs, rowData, scale, listener);
+	}
+
+	private static void drawSerial(BufferedImage front, BufferedImage rear, List<FieldJob> jobs, Map<String, String> rowData,
+			double scale, StatusListener listener) {
+		Graphics2D gFront = front.createGraphics();
+		gFront.setColor(Color.BLACK);
+		Graphics2D gRear = rear.createGraphics();
+		gRear.setColor(Color.BLACK);
+		if (scale != 1) {
+			gFront.scale(scale, scale);
+			gRear.scale(scale, scale);
+		}
+		for (FieldJob job : jobs) {
+			drawField(job, gFront, gRear, rowData, listener);
+		}
+		gFront.dispose();
+		gRear.dispose();
+	}
+
+	private static void drawField(FieldJob job, Graphics2D gFront, Graphics2D gRear, Map<String, String> rowData,
+			StatusListener listener) {
+		try {
+			job.getField().drawContent(gFront, gRear, job.getContent(), rowData);
+		} catch (Exception e) {
+			if (listener != null)
+				listener.setText("Error drawing on field " + job.getField().getName() + ": " + e.getMessage());
+			e.printStackTrace();
+		}
+	}
+
+	private static synchronized ForkJoinPool getPool() {
+		if (pool == null)
+			pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		return pool;
+	}
+
+	/**
+	 * Returns the area a field chain can draw on for the given side. Fields are
+	 * not clipped when drawn serially, so the area is the whole card image.
+	 *
+	 * @return Bounds of the card image, or null if the chain has no field on
+	 *         the side
+	 */
+	private static Rectangle getBounds(Field field, CardSide side, BufferedImage img) {
+		for (Field f = field; f != null; f = f.getLinkedField()) {
+			if (f.getSide() == side && f.getRect() != null)
+				return new Rectangle(0, 0, img.getWidth(), img.getHeight());
+		}
+		return null;
+	}
+
+	/**
+	 * Draws all fields of a card on layers and composites them.
+	 */
+	private static class CardTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final BufferedImage front;
+
+		private final BufferedImage rear;
+
+		private final List<FieldJob> jobs;
+
+		private final Map<String, String> rowData;
+
+		private final double scale;
+
+		private final StatusListener listener;
+
+		public CardTask(BufferedImage front, BufferedImage rear, List<FieldJob> jobs, Map<String, String> rowData,
+				double scale, StatusListener listener) {
+			this.front = front;
+			this.rear = rear;
+			this.jobs = jobs;
+			this.rowData = rowData;
+			this.scale = scale;
+			this.listener = listener;
+		}
+
+		@Override
+		protected void compute() {
+			for (int from = 0; from < jobs.size(); from += LAYER_WINDOW) {
+				List<FieldJob> window = jobs.subList(from, Math.min(from + LAYER_WINDOW, jobs.size()));
+				List<LayerTask> layers = new ArrayList<>(window.size());
+				for (FieldJob job : window) {
+					layers.add(new LayerTask(job, getBounds(job.getField(), CardSide.FRONT, front),
+							getBounds(job.getField(), CardSide.REAR, rear), rowData, scale, listener));
+				}
+				invokeAll(layers);
+				invokeAll(new CompositeTask(front, layers, CardSide.FRONT), new CompositeTask(rear, layers, CardSide.REAR));
+			}
+		}
+	}
+
+	/**
+	 * Draws a field chain on transparent layers covering the card sides it has
+	 * fields on.
+	 */
+	private static class LayerTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final FieldJob job;
+
+		private final Rectangle frontBounds;
+
+		private final Rectangle rearBounds;
+
+		private final Map<String, String> rowData;
+
+		private final double scale;
+
+		private final StatusListener listener;
+
+		private BufferedImage frontLayer = null;
+
+		private BufferedImage rearLayer = null;
+
+		public LayerTask(FieldJob job, Rectangle frontBounds, Rectangle rearBounds, Map<String, String> rowData,
+				double scale, StatusListener listener) {
+			this.job = job;
+			this.frontBounds = frontBounds;
+			this.rearBounds = rearBounds;
+			this.rowData = rowData;
+			this.scale = scale;
+			this.listener = listener;
+		}
+
+		@Override
+		protected void compute() {
+			frontLayer = createLayer(frontBounds);
+			rearLayer = createLayer(rearBounds);
+			Graphics2D gFront = createGraphics(frontLayer, frontBounds, scale);
+			Graphics2D gRear = createGraphics(rearLayer, rearBounds, scale);
+			drawField(job, gFront, gRear, rowData, listener);
+			gFront.dispose();
+			gRear.dispose();
+		}
+
+		private static BufferedImage createLayer(Rectangle bounds) {
+			// A field chain without fields on a side gets a dummy surface that is never composited
+			return bounds != null ? new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB)
+					: new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+		}
+
+		private static Graphics2D createGraphics(BufferedImage layer, Rectangle bounds, double scale) {
+			Graphics2D g = layer.createGraphics();
+			if (bounds != null)
+				g.translate(-bounds.x, -bounds.y);
+			if (scale != 1)
+				g.scale(scale, scale);
+			g.setColor(Color.BLACK);
+			return g;
+		}
+
+		public BufferedImage getLayer(CardSide side) {
+			return side == CardSide.FRONT ? (frontBounds != null ? frontLayer : null) : (rearBounds != null ? rearLayer : null);
+		}
+
+		public Rectangle getBounds(CardSide side) {
+			return side == CardSide.FRONT ? frontBounds : rearBounds;
+		}
+	}
+
+	/**
+	 * Composites the layers of one card side in field order.
+	 */
+	private static class CompositeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final BufferedImage img;
+
+		private final List<LayerTask> layers;
+
+		private final CardSide side;
+
+		public CompositeTask(BufferedImage img, List<LayerTask> layers, CardSide side) {
+			this.img = img;
+			this.layers = layers;
+			this.side = side;
+		}
+
+		@Override
+		protected void compute() {
+			Graphics2D g = img.createGraphics();
+			for (LayerTask layer : layers) {
+				BufferedImage l = layer.getLayer(side);
+				if (l != null)
+					g.drawImage(l, layer.getBounds(side).x, layer.getBounds(side).y, null);
+			}
+			g.dispose();
+		}
+	}
+}
@@ -0,0 +1,248 @@
+package vv3ird.populatecard.control;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Tiles card thumbnails into paged overview images, so a deck can be reviewed
+ * without opening every card. The cards are not drawn at full size and scaled
+ * down, they are drawn at thumbnail scale by the {@link CardRenderEngine} and
+ * only copied onto the pages here.<br>
+ * Cards can be added from multiple threads, every card has a fixed slot on its
+ * page. A page is written as soon as all of its slots are filled and released
+ * afterwards, so only the pages currently being filled are kept in memory.
+ * Pages with empty slots, e.g. because drawing a card failed, are written by
+ * {@link #finish()}.
+ *
+ * @author VV3IRD
+ *
+ */
+public class ContactSheetRenderer {
+
+	/**
+	 * Name of the folder of the contact sheets in the project
+	 */
+	public static final String CONTACT_SHEET_FOLDER = "contactsheets";
+
+	/**
+	 * Height of the thumbnails, the height of the preview in the main window
+	 */
+	public static final int THUMBNAIL_HEIGHT = 199;
+
+	private static final String FILE_PREFIX = "contactsheet_";
+
+	private static final int ROWS = 5;
+
+	private static final int COLUMNS = 8;
+
+	private static final int GAP = 8;
+
+	private static final int CAPTION_HEIGHT = 14;
+
+	private static final Color BACKGROUND = new Color(224, 224, 224);
+
+	private static final Font CAPTION_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 11);
+
+	private final int cardCount;
+
+	private final int thumbnailWidth;
+
+	private final int thumbnailHeight;
+
+	private final boolean rear;
+
+	private final int columns;
+
+	private final Path folder;
+
+	private final String zeroes;
+
+	/**
+	 * Pages being filled, <code>null</code> before the first card of a page
+	 * is added and after the page is written
+	 */
+	private final BufferedImage[] pages;
+
+	/**
+	 * Number of cards added to each page
+	 */
+	private final int[] filled;
+
+	/**
+	 * Written files of the pages
+	 */
+	private final Path[] files;
+
+	/**
+	 * Creates empty contact sheets, contact sheets of an earlier run are
+	 * deleted from the folder.
+	 *
+	 * @param folder			Folder of the contact sheets
+	 * @param cardCount			Number of cards of the deck
+	 * @param thumbnailWidth	Width of a card side
+	 * @param thumbnailHeight	Height of a card side
+	 * @param rear				Flag if the rear side is shown next to the front
+	 * @throws IOException	whenever the folder could not be created or cleared
+	 */
+	public ContactSheetRenderer(Path folder, int cardCount, int thumbnailWidth, int thumbnailHeight, boolean rear)
+			throws IOException {
+		this.folder = folder;
+		this.cardCount = cardCount;
+		this.thumbnailWidth = thumbnailWidth;
+		this.thumbnailHeight = thumbnailHeight;
+		this.rear = rear;
+		this.columns = rear ? COLUMNS / 2 : COLUMNS;
+		int pageCount = (cardCount + getCardsPerPage() - 1) / getCardsPerPage();
+		this.pages = new BufferedImage[pageCount];
+		this.filled = new int[pageCount];
+		this.files = new Path[pageCount];
+		this.zeroes = "%0" + String.valueOf(pageCount).length() + "d";
+		deleteOldPages();
+	}
+
+	/**
+	 * Returns the render scale cards are drawn with for the contact sheets.
+	 *
+	 * @param template	Front template of the cards
+	 * @return Scale that draws the cards at thumbnail height
+	 */
+	public static double getScale(BufferedImage template) {
+		return (double) THUMBNAIL_HEIGHT / template.getHeight();
+	}
+
+	public int getCardsPerPage() {
+		return columns * ROWS;
+	}
+
+	/**
+	 * Copies a drawn card into its slot. The card that fills the last free slot
+	 * of a page writes the page.
+	 *
+	 * @param index		Index of the card, starting with 0
+	 * @param caption	Caption below the card
+	 * @param front		Front side at thumbnail scale
+	 * @param rear		Rear side at thumbnail scale, ignored if the rear is
+	 *            not shown
+	 * @throws IOException	whenever the filled page could not be written
+	 */
+	public void addCard(int index, String caption, BufferedImage front, BufferedImage rear) throws IOException {
+		int pageNo = index / getCardsPerPage();
+		BufferedImage page = getPage(pageNo);
+		int slot = index % getCardsPerPage();
+		int x = GAP + (slot % columns) * (getTileWidth() + GAP);
+		int y = GAP + (slot / columns) * (thumbnailHeight + CAPTION_HEIGHT + GAP);
+		synchronized (page) {
+			Graphics2D g = page.createGraphics();
+			g.drawImage(front, x, y, thumbnailWidth, thumbnailHeight, null);
+			if (this.rear && rear != null)
+				g.drawImage(rear, x + thumbnailWidth + GAP, y, thumbnailWidth, thumbnailHeight, null);
+			g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			g.setColor(Color.BLACK);
+			g.setFont(CAPTION_FONT);
+			g.drawString(caption, x, y + thumbnailHeight + CAPTION_HEIGHT - 3);
+			g.dispose();
+		}
+		if (isFull(pageNo))
+			write(pageNo, page);
+	}
+
+	/**
+	 * Writes the pages that still have empty slots, the slots are left blank.
+	 * Must be called after the last card was added.
+	 *
+	 * @return Files of the pages with at least one card, in page order
+	 * @throws IOException	whenever a page could not be written
+	 */
+	public synchronized List<Path> finish() throws IOException {
+		for (int i = 0; i < pages.length; i++) {
+			if (pages[i] != null) {
+				write(i, pages[i]);
+				pages[i] = null;
+			}
+		}
+		List<Path> written = new ArrayList<>(files.length);
+		for (Path file : files) {
+			if (file != null)
+				written.add(file);
+		}
+		return written;
+	}
+
+	private void deleteOldPages() throws IOException {
+		if (!Files.exists(folder))
+			Files.createDirectories(folder);
+		List<Path> oldPages;
+		try (Stream<Path> files = Files.list(folder)) {
+			oldPages = files.filter(f -> f.getFileName().toString().startsWith(FILE_PREFIX)).collect(Collectors.toList());
+		}
+		for (Path oldPage : oldPages) {
+			Files.delete(oldPage);
+		}
+	}
+
+	/**
+	 * Counts a card added to a page and releases the page, if all of its slots
+	 * are filled.
+	 *
+	 * @return <code>true</code>, if the page is filled and should be written
+	 */
+	private synchronized boolean isFull(int page) {
+		filled[page]++;
+		if (filled[page] < getCardCount(page))
+			return false;
+		pages[page] = null;
+		return true;
+	}
+
+	private void write(int pageNo, BufferedImage page) throws IOException {
+		Path file = folder.resolve(FILE_PREFIX + String.format(zeroes, pageNo + 1) + ".png");
+		ImageIO.write(page, "PNG", file.toFile());
+		synchronized (this) {
+			files[pageNo] = file;
+		}
+	}
+
+	/**
+	 * Returns the number of cards on a page, only the last page can have less
+	 * cards than {@link #getCardsPerPage()}.
+	 */
+	private int getCardCount(int page) {
+		return Math.min(getCardsPerPage(), cardCount - page * getCardsPerPage());
+	}
+
+	private int getTileWidth() {
+		return rear ? thumbnailWidth * 2 + GAP : thumbnailWidth;
+	}
+
+	/**
+	 * Returns a page, it is created on first use. The last page only has the
+	 * rows and columns it needs.
+	 */
+	private synchronized BufferedImage getPage(int page) {
+		if (pages[page] == null) {
+			int cards = getCardCount(page);
+			int rows = (cards + columns - 1) / columns;
+			int width = GAP + Math.min(columns, cards) * (getTileWidth() + GAP);
+			int height = GAP + rows * (thumbnailHeight + CAPTION_HEIGHT + GAP);
+			BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			Graphics2D g = img.createGraphics();
+			g.setColor(BACKGROUND);
+			g.fillRect(0, 0, width, height);
+			g.dispose();
+			pages[page] = img;
+		}
+		return pages[page];
+	}
+}
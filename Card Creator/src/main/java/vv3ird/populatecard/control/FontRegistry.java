@@ -0,0 +1,159 @@
+package vv3ird.populatecard.control;
+
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.GraphicsEnvironment;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.swing.JLabel;
+
+/**
+ * Process wide registry for fonts.<br>
+ * Font files are only parsed when a font is used for the first time. Parsed
+ * fonts are shared by the SHA-256 hash of their file content, so a font file
+ * used by several projects, or a project opened again, is only parsed once.
+ * Files that have not changed since they were read are not even hashed again.<br>
+ * System fonts are looked up in a case insensitive index of the font families,
+ * which is built once on first use.
+ *
+ * @author VV3IRD
+ *
+ */
+public class FontRegistry {
+
+	/**
+	 * Parsed fonts by the hash of their file content
+	 */
+	private static final Map<String, Font> fontsByHash = new ConcurrentHashMap<>();
+
+	/**
+	 * Content hashes of font files, by path, size and modification time
+	 */
+	private static final Map<String, String> hashesByFile = new ConcurrentHashMap<>();
+
+	private static volatile Font defaultFont = null;
+
+	/**
+	 * Index of the system fonts, built on first use
+	 */
+	private static class SystemFonts {
+
+		private static final String[] FAMILIES = GraphicsEnvironment.getLocalGraphicsEnvironment()
+				.getAvailableFontFamilyNames();
+
+		private static final Map<String, Font> BY_FAMILY = createIndex();
+
+		private static Map<String, Font> createIndex() {
+			Map<String, Font> index = new HashMap<>();
+			for (Font font : GraphicsEnvironment.getLocalGraphicsEnvironment().getAllFonts()) {
+				// The first font of a family is used, as by the former linear search
+				index.putIfAbsent(font.getFamily().toLowerCase(Locale.ROOT), font);
+			}
+			return Collections.unmodifiableMap(index);
+		}
+	}
+
+	/**
+	 * Returns the font of a font file. The file is only read if it changed since
+	 * it was read the last time, and only parsed if no file with the same content
+	 * has been parsed before.
+	 *
+	 * @param file	True type font file
+	 * @return Font of the file
+	 * @throws IOException			Whenever the file cannot be read
+	 * @throws FontFormatException	If the file is not a valid true type font
+	 */
+	public static Font loadFont(Path file) throws IOException, FontFormatException {
+		String fileKey = file.toAbsolutePath().normalize() + "|" + Files.size(file) + "|"
+				+ Files.getLastModifiedTime(file).toMillis();
+		String hash = hashesByFile.get(fileKey);
+		Font font = hash != null ? fontsByHash.get(hash) : null;
+		if (font != null)
+			return font;
+		byte[] data = Files.readAllBytes(file);
+		hash = hash(data);
+		font = fontsByHash.get(hash);
+		if (font == null) {
+			font = Font.createFont(Font.TRUETYPE_FONT, new ByteArrayInputStream(data));
+			Font existing = fontsByHash.putIfAbsent(hash, font);
+			if (existing != null)
+				font = existing;
+			else
+				System.out.println("Loaded font " + font.getFontName() + " from " + file.getFileName());
+		}
+		hashesByFile.put(fileKey, hash);
+		return font;
+	}
+
+	/**
+	 * Returns the font of a font file, see {@link #loadFont(Path)}.
+	 *
+	 * @param file	True type font file
+	 * @return Font of the file, or null, if the file cannot be loaded
+	 */
+	public static Font getFont(Path file) {
+		try {
+			return loadFont(file);
+		} catch (IOException | FontFormatException e) {
+			System.out.println("Font " + file.getFileName() + " could not be loaded: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the system font of the given family.
+	 *
+	 * @param family	Font family, case insensitive
+	 * @return Font of the family, or null, if there is no such system font
+	 */
+	public static Font getSystemFont(String family) {
+		return family != null ? SystemFonts.BY_FAMILY.get(family.toLowerCase(Locale.ROOT)) : null;
+	}
+
+	/**
+	 * Returns the families of all system fonts.
+	 *
+	 * @return Names of the font families installed on the system
+	 */
+	public static String[] getSystemFontFamilies() {
+		return SystemFonts.FAMILIES.clone();
+	}
+
+	/**
+	 * Returns the default font of the user interface.
+	 *
+	 * @return Default font
+	 */
+	public static Font getDefaultFont() {
+		Font font = defaultFont;
+		if (font == null) {
+			font = new JLabel().getFont();
+			defaultFont = font;
+		}
+		return font;
+	}
+
+	private static String hash(byte[] data) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+			StringBuilder sb = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform has to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -2,7 +2,6 @@ package vv3ird.populatecard.control;
 
 import java.awt.Font;
 import java.awt.FontFormatException;
-import java.awt.GraphicsEnvironment;
 import java.awt.image.BufferedImage;
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
@@ -14,11 +13,7 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -28,15 +23,19 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.imageio.ImageIO;
-import javax.swing.JLabel;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
@@ -47,11 +46,21 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 
+import vv3ird.populatecard.data.ParallelProcessing;
 import vv3ird.populatecard.data.Project;
+import vv3ird.populatecard.data.text.SymbolAtlas;
 import vv3ird.populatecard.io.CopyFileVisitor;
+import vv3ird.populatecard.io.ProjectArchiver;
+import vv3ird.populatecard.io.RenderCache;
 
 public class ProjectManager {
 
+	/**
+	 * Images read at the same time on the I/O executor, each read image is held
+	 * decoded and base64 encoded in memory
+	 */
+	private static final int MAX_DECODES = Math.max(2, Runtime.getRuntime().availableProcessors());
+
 	private static List<String> recentProjects = new LinkedList<>();
 
 	static {
@@ -99,15 +108,26 @@ public class ProjectManager {
 	public static Project openProject(String projectFilePath) throws IOException {
 		Path projectFile = Paths.get(projectFilePath);
 		Path projectRoot = Paths.get(projectFilePath).getParent();
+		// A project file from the recent list might have been migrated to a container
+		if (!Files.exists(projectFile)) {
+			Path container = projectRoot.resolve(getBaseName(projectFile) + Project.CONTAINER_EXTENSION);
+			if (Files.exists(container)) {
+				recentProjects.remove(projectFile.toString());
+				projectFile = container;
+			}
+		}
 		Project p = Project.load(projectFile);
 		String rootFolderName = projectFile.getParent().getFileName().toString();
 		if(!rootFolderName.equals(p.getName()))
 			p.setName(rootFolderName);
 		// Load fonts
 		Path projectFonts = Paths.get(projectRoot.toString(), "fonts");
-		Stream<Path> fontFiles = Files.list(projectFonts);
-		fontFiles.forEach(pth -> loadFont(p, pth));
-		fontFiles.close();
+		try (Stream<Path> fontFiles = Files.list(projectFonts)) {
+			fontFiles.filter(Files::isRegularFile).forEach(pth -> addFont(p, pth));
+		}
+		TaskScheduler.setVirtualThreadIo(p.getProcessingMode() == ParallelProcessing.VIRTUAL_THREAD_IO);
+		p.setRenderCache(new RenderCache(projectRoot));
+		p.setSymbolAtlas(new SymbolAtlas(projectRoot.resolve(SymbolAtlas.SYMBOLS_FOLDER)));
 		// Load CSV
 		Path projectCsv = Files.list(Paths.get(projectRoot.toString(), "csv")).filter(f -> f.toString().endsWith(".csv") && Files.isRegularFile(f)).findFirst().orElse(null);
 		if (projectCsv != null && Files.exists(projectCsv)) {
@@ -115,15 +135,7 @@ public class ProjectManager {
 			try (InputStream is = Files.newInputStream(projectCsv); Reader in = new InputStreamReader(is, StandardCharsets.UTF_8); CSVParser parser = new CSVParser(in, format);) {
 				List<CSVRecord> records = parser.getRecords();
 				Map<String, Integer> headerMap = parser.getHeaderMap();
-				String[][] csvData = new String[(int) parser.getRecordNumber()][];
-				int row = 0;
-				for (CSVRecord record : records) {
-					csvData[row] = new String[record.size()];
-					for (int i = 0; i < csvData[row].length; i++) {
-						csvData[row][i] = processMediaEntry(record.get(i));
-					}
-					row++;
-				}
+				String[][] csvData = processMediaEntries(records, true);
 				p.setCsvHeader(headerMap);
 				p.setCsvData(csvData);
 			}
@@ -153,24 +165,32 @@ public class ProjectManager {
 
 
 	/**
-	 * Loads a font from the project resources
-	 * @param p		Project the font is loaded for
+	 * Returns the file name without its extension.
+	 */
+	private static String getBaseName(Path file) {
+		String name = file.getFileName().toString();
+		return name.lastIndexOf(".") > 0 ? name.substring(0, name.lastIndexOf(".")) : name;
+	}
+
+	/**
+	 * Checks if the file is a project file in the container or one of the legacy formats.
+	 */
+	private static boolean isProjectFile(Path file) {
+		String name = file.getFileName().toString();
+		return name.endsWith(Project.CONTAINER_EXTENSION) || name.endsWith(".cmp") || name.endsWith(".cmpz");
+	}
+
+	/**
+	 * Adds a font from the project resources to the project. The font is loaded
+	 * by the {@link FontRegistry} when it is used for the first time.
+	 * @param p		Project the font is added to
 	 * @param path	Path of the font
-	 * @return		Returns the Font object loaded
 	 */
-	private static Font loadFont(Project p, Path path) {
-		Font font = null;
+	private static void addFont(Project p, Path path) {
 		String name = path.getFileName().toString();
-		name = name.substring(0, name.lastIndexOf("."));
-		if(Files.exists(path)) {
-			try (InputStream fIn = Files.newInputStream(path)) {
-				font = Font.createFont(Font.TRUETYPE_FONT, fIn);
-				p.addFont(name, font);
-			} catch (IOException|FontFormatException e) {
-				e.printStackTrace();
-			}
-		}
-		return font;
+		if (name.lastIndexOf(".") > 0)
+			name = name.substring(0, name.lastIndexOf("."));
+		p.addFontFile(name, path);
 	}
 
 
@@ -182,8 +202,8 @@ public class ProjectManager {
 	 */
 	public static Project createEmptyProject(String projectName) throws IOException {
 		Path projectRoot = Paths.get("projects", projectName);
-		Path projectFilePath = projectRoot.resolve(projectName + ".cmpz");
-		if (Files.exists(projectFilePath)) 
+		Path projectFilePath = projectRoot.resolve(projectName + Project.CONTAINER_EXTENSION);
+		if (checkForDuplicates(projectName)) 
 			throw new IOException("Project \"" + projectName + "\" already exists");
 		Path projectFonts = projectRoot.resolve("fonts");
 		Path projectCsv = projectRoot.resolve("csv");
@@ -200,15 +220,18 @@ public class ProjectManager {
 
 
 	/**
-	 * Save the current Project file
+	 * Save the current Project file. Projects in the legacy <code>.cmp</code> or
+	 * <code>.cmpz</code> format are migrated to a project container, the legacy
+	 * file is kept as hidden backup.
 	 * @param project	Project to be serialized
 	 * @throws IOException
 	 */
 	public static void saveProject(Project project) throws IOException {
 		Path projectRoot = project.getProjectRoot();
-		Path projectFilePath = Paths.get(projectRoot.toString(), project.getName() + ".cmp");
-		if(!Files.exists(projectFilePath))
-			projectFilePath = Paths.get(projectRoot.toString(), project.getName() + ".cmpz");
+		Path projectFilePath = Paths.get(projectRoot.toString(), project.getName() + Project.CONTAINER_EXTENSION);
+		Path legacyFilePath = Paths.get(projectRoot.toString(), project.getName() + ".cmp");
+		if(!Files.exists(legacyFilePath))
+			legacyFilePath = Paths.get(projectRoot.toString(), project.getName() + ".cmpz");
 		Path projectFonts = Paths.get(projectRoot.toString().toString(), "fonts");
 		Path projectCsv = Paths.get(projectRoot.toString(), "csv");
 		Path projectOutput = Paths.get(projectRoot.toString(), "output");
@@ -216,6 +239,12 @@ public class ProjectManager {
 		Files.createDirectories(projectCsv);
 		Files.createDirectories(projectOutput);
 		Project.save(project, projectFilePath, true);
+		if (Files.exists(legacyFilePath)) {
+			System.out.println("Migrated " + legacyFilePath + " to " + projectFilePath);
+			Files.move(legacyFilePath, legacyFilePath.getParent().resolve("." + legacyFilePath.getFileName().toString()), StandardCopyOption.REPLACE_EXISTING);
+			recentProjects.remove(legacyFilePath.toString());
+			addRecentProject(projectFilePath.toString());
+		}
 	}
 	
 	/**
@@ -233,16 +262,39 @@ public class ProjectManager {
 		String name = fontPath.getFileName().toString();
 		name = name.substring(0, name.lastIndexOf("."));
 		if(Files.exists(fontPath)) {
-			try (InputStream fIn = Files.newInputStream(fontPath)) {
-				font = Font.createFont(Font.TRUETYPE_FONT, fIn);
-				Path projectFont = Paths.get(project.getProjectRoot().toString(), "fonts", fontPath.getFileName().toString());
-				Files.copy(fontPath, projectFont, StandardCopyOption.REPLACE_EXISTING);
-				project.addFont(name, font);
-			}
+			// Fails for invalid fonts before the file is copied
+			font = FontRegistry.loadFont(fontPath);
+			Path projectFont = Paths.get(project.getProjectRoot().toString(), "fonts", fontPath.getFileName().toString());
+			Files.copy(fontPath, projectFont, StandardCopyOption.REPLACE_EXISTING);
+			project.addFontFile(name, projectFont);
+			project.addFont(name, font);
 		}
 		return name;
 	}
 
+	/**
+	 * Imports a symbol into the project. The symbol is drawn in texts by
+	 * &lt;sym&gt;name&lt;/sym&gt;, the name is the file name without extension.
+	 * @param project		Project the symbol should be added to
+	 * @param symbolPath	Path to the image file, it will be copied into the project
+	 * @return	Name of the symbol
+	 * @throws IOException	IO Error copying the file, or if the file is not a readable image
+	 */
+	public static String importSymbol(Project project, Path symbolPath) throws IOException {
+		project = Objects.requireNonNull(project);
+		symbolPath = Objects.requireNonNull(symbolPath);
+		// Fails for invalid images before the file is copied
+		if (ImageIO.read(symbolPath.toFile()) == null)
+			throw new IOException("Unsupported image format: " + symbolPath.getFileName());
+		Path projectSymbols = project.getProjectRoot().resolve(SymbolAtlas.SYMBOLS_FOLDER);
+		Files.createDirectories(projectSymbols);
+		Path projectSymbol = projectSymbols.resolve(symbolPath.getFileName().toString());
+		Files.copy(symbolPath, projectSymbol, StandardCopyOption.REPLACE_EXISTING);
+		if (project.getSymbolAtlas() == null)
+			project.setSymbolAtlas(new SymbolAtlas(projectSymbols));
+		return project.getSymbolAtlas().addSymbol(projectSymbol);
+	}
+
 	/**
 	 * Deletes a font from the project
 	 * @param project	Given project where the font should be deleted from
@@ -268,6 +320,7 @@ public class ProjectManager {
 	
 	public static void importCsv(Project project, Path csvPath, boolean processMediaEntries) throws IOException {
 		boolean csvValid=false;
+		String[][] csvData = null;
 		Path projectCsv = Paths.get(project.getProjectRoot().toString(), "csv", "data.csv");
 		if(Files.exists(csvPath)) {
 			CSVFormat format = project.getCSVFormat();
@@ -281,17 +334,13 @@ public class ProjectManager {
 				}
 				List<CSVRecord> records = parser.getRecords();
 				System.out.println("CSV Rows: " + parser.getRecordNumber());
-				String[][] csvData = new String[(int) parser.getRecordNumber()][];
-				int row = 0;
-				for (CSVRecord record : records) {
-					System.out.println("Row: " + (row+1) + " CSV columns: " + record.size());
-					csvData[row] = new String[record.size()];
+				csvData = processMediaEntries(records, processMediaEntries);
+				for (int row = 0; row < csvData.length; row++) {
+					System.out.println("Row: " + (row+1) + " CSV columns: " + csvData[row].length);
 					for (int i = 0; i < csvData[row].length; i++) {
-						csvData[row][i] = processMediaEntries ? processMediaEntry(record.get(i)) : record.get(i);
-						System.out.println("\tColumn " + i + ": " + record.get(i) + ", ");
+						System.out.println("\tColumn " + i + ": " + records.get(row).get(i) + ", ");
 					}
 					System.out.println();
-					row++;
 				}
 				project.setCsvHeader(headerMap);
 				project.setCsvData(csvData);
@@ -299,35 +348,34 @@ public class ProjectManager {
 			}
 			if(csvValid) {
 				CSVPrinter csvPrinter = null;
-				try (InputStream is = Files.newInputStream(csvPath);
-						Reader in = new InputStreamReader(is, StandardCharsets.UTF_8);
-						CSVParser parser = new CSVParser(in, format);) {
-					
-					BufferedWriter br = Files.newBufferedWriter(projectCsv, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-					String[] header = new String[parser.getHeaderMap().size()];
-					Map<String, Integer> headerMap = parser.getHeaderMap();
-					for (String head : headerMap.keySet()) {
-						header[headerMap.get(head)] = head;
-					}
-					csvPrinter = new CSVPrinter(br, format.withHeader(header));
-					csvPrinter.printRecord(Arrays.asList(header));
-					List<CSVRecord> records = parser.getRecords();
-					for (CSVRecord csvRecord : records) {
-						List<String> record = new ArrayList<>(records.size());
-						for(int i=0; i<csvRecord.size();i++) {
-							String entry = csvRecord.get(i);
-							System.out.println(entry);
-							entry = processMediaEntries ? processMediaEntry(entry) : entry;
-							System.out.println(entry);
-							record.add(entry);
+				// data.csv can be a hard link to another file after an import, it is replaced instead of overwritten
+				Path tempCsv = projectCsv.resolveSibling("." + projectCsv.getFileName().toString() + ".tmp");
+				try {
+					try (InputStream is = Files.newInputStream(csvPath);
+							Reader in = new InputStreamReader(is, StandardCharsets.UTF_8);
+							CSVParser parser = new CSVParser(in, format);) {
+						
+						BufferedWriter br = Files.newBufferedWriter(tempCsv, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+						String[] header = new String[parser.getHeaderMap().size()];
+						Map<String, Integer> headerMap = parser.getHeaderMap();
+						for (String head : headerMap.keySet()) {
+							header[headerMap.get(head)] = head;
+						}
+						csvPrinter = new CSVPrinter(br, format.withHeader(header));
+						csvPrinter.printRecord(Arrays.asList(header));
+						// Media entries have already been processed while reading the csv data
+						for (String[] csvRecord : csvData) {
+							csvPrinter.printRecord(Arrays.asList(csvRecord));
 						}
-						csvPrinter.printRecord(record);
+//						Files.copy(csvPath, projectCsv, StandardCopyOption.REPLACE_EXISTING);
 					}
-//					Files.copy(csvPath, projectCsv, StandardCopyOption.REPLACE_EXISTING);
-				}
-				finally {
-					if(csvPrinter != null)
-						csvPrinter.close();
+					finally {
+						if(csvPrinter != null)
+							csvPrinter.close();
+					}
+					Files.move(tempCsv, projectCsv, StandardCopyOption.REPLACE_EXISTING);
+				} finally {
+					Files.deleteIfExists(tempCsv);
 				}
 				if(csvValid) 
 					ProjectManager.openCsv(projectCsv, project.getCSVFormat());
@@ -335,6 +383,72 @@ public class ProjectManager {
 		}
 	}
 
+	/**
+	 * Copies the given csv records into an array. If requested, image links are
+	 * replaced by base64 encoded images. The image files are read on the I/O
+	 * executor of the {@link TaskScheduler}, if one is available, a limited
+	 * number at once. An entry whose image could not be read is kept as it is.
+	 * @param records		CSV records
+	 * @param processMedia	<code>true</code> if image links should be replaced
+	 * @return	The csv data
+	 */
+	private static String[][] processMediaEntries(List<CSVRecord> records, boolean processMedia) {
+		String[][] csvData = new String[records.size()][];
+		ExecutorService io = processMedia ? TaskScheduler.acquireIoExecutor() : null;
+		try {
+			Semaphore decodes = new Semaphore(MAX_DECODES);
+			List<Future<?>> reads = new LinkedList<>();
+			for (int row = 0; row < csvData.length; row++) {
+				CSVRecord record = records.get(row);
+				csvData[row] = new String[record.size()];
+				for (int i = 0; i < csvData[row].length; i++) {
+					String entry = record.get(i);
+					if (!processMedia)
+						csvData[row][i] = entry;
+					else if (io != null && entry.contains("img")) {
+						// Keeps the original entry, if the image is not read
+						csvData[row][i] = entry;
+						final String[] target = csvData[row];
+						final int column = i;
+						try {
+							decodes.acquire();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							continue;
+						}
+						try {
+							reads.add(io.submit(() -> {
+								try {
+									target[column] = processMediaEntry(entry);
+								} finally {
+									decodes.release();
+								}
+							}));
+						} catch (RuntimeException e) {
+							decodes.release();
+							throw e;
+						}
+					}
+					else
+						csvData[row][i] = processMediaEntry(entry);
+				}
+			}
+			for (Future<?> read : reads) {
+				try {
+					read.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				} catch (ExecutionException e) {
+					e.printStackTrace();
+				}
+			}
+			return csvData;
+		} finally {
+			TaskScheduler.releaseIoExecutor(io);
+		}
+	}
+
 	public static String processMediaEntry(String entry) { 
 		// Replaces the old format with the new xml style format
 		entry = entry.replace("-img:", "<img>").replace(":img-", "</img>").replace("-imgb:", "<imgb>").replace(":imgb-", "</imgb>");
@@ -372,21 +486,29 @@ public class ProjectManager {
 
 
 	public static boolean checkForDuplicates(String projectName) {
-		Path projectFilePath = Paths.get("projects", projectName, projectName + ".cmp");
-		return Files.exists(projectFilePath);
+		for (String extension : new String[] {Project.CONTAINER_EXTENSION, ".cmp", ".cmpz"}) {
+			if (Files.exists(Paths.get("projects", projectName, projectName + extension)))
+				return true;
+		}
+		return false;
 	}
 
 	public static String[] getSystemFonts() {
-		String[] fonts = GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
-		return fonts;
+		return FontRegistry.getSystemFontFamilies();
 	}
 	
+	/**
+	 * Resolves a font name: fonts of the project first, then system fonts by
+	 * family, otherwise the default font.
+	 * @param p			Project, can be null
+	 * @param fontName	Name of the font
+	 * @return	Font for the name, never null
+	 */
 	public static Font getFont(Project p, String fontName) {
-		Font font = p.getFonts().get(fontName);
-		if (font == null) {
-			font = Arrays.asList(GraphicsEnvironment.getLocalGraphicsEnvironment().getAllFonts()).stream().filter(f -> f.getFamily().equalsIgnoreCase(fontName)).findFirst().orElse(null);
-		}
-		return font != null ? font : new JLabel().getFont();
+		Font font = p != null ? p.getFont(fontName) : null;
+		if (font == null)
+			font = FontRegistry.getSystemFont(fontName);
+		return font != null ? font : getDefaultFont();
 	}
 	
 	public static String encodeImageToBase64(BufferedImage img) {
@@ -415,7 +537,7 @@ public class ProjectManager {
 
 
 	public static Font getDefaultFont() {
-		return new JLabel().getFont();
+		return FontRegistry.getDefaultFont();
 	}
 
 	public static Path importProject(Path selectedProject) {
@@ -438,63 +560,77 @@ public class ProjectManager {
 		return targetRoot.resolve(selectedProject.getFileName());
 	}
 
+	/**
+	 * Imports a project exported with {@link #exportProject(Project, Path, boolean)}.
+	 * The archive is extracted into a temporary folder first, which is renamed
+	 * after the project name once the project file has been found.
+	 * @param sourceFile	Zip archive of the project
+	 * @return	Path of the imported project file, or null, if the import failed
+	 */
 	public static Path importZipProject(Path sourceFile) {
-		Map<String, String> env = new HashMap<>(); 
-		Path targetRoot = null;
-		Path targetProject = null;
-        try {
-	        URI uri = new URI("jar:"+ sourceFile.toFile().toURI());
-	        System.out.println(uri);
-			try (FileSystem zipfs = FileSystems.newFileSystem(uri, env)) {
-				Path sourceRoot = zipfs.getPath("/");
-				Path projectFile = Files.list(sourceRoot).filter(p -> p.getFileName().toString().endsWith(".cmp") || p.getFileName().toString().endsWith(".cmpz")).findFirst().orElse(null);
-				if (projectFile != null) {
-					Project p = Project.load(projectFile);
-					targetRoot = Paths.get("projects", p.getName());
-					int i = 0;
-					boolean renamedProject = false;
-					while (Files.exists(targetRoot)) {
-						targetRoot = Paths.get("projects", p.getName() + "_" + ++i);
-						renamedProject = true;
-					}
-					System.out.println("Source Root: " + sourceRoot);
-					System.out.println("Target Root: " + targetRoot);
-					Files.createDirectories(targetRoot);
-					Files.walkFileTree(sourceRoot, new CopyFileVisitor(targetRoot));
-					targetProject = Paths.get("projects", p.getName() + (renamedProject ? "_" + i : ""), projectFile.getFileName().toString());
-				}
-				return targetProject;
+		Path tempRoot = Paths.get("projects", ".import" + System.currentTimeMillis());
+		try {
+			ProjectArchiver.extract(sourceFile, tempRoot);
+			Path projectFile = null;
+			try (Stream<Path> files = Files.list(tempRoot)) {
+				// Prefers the container over the older formats, hidden backups are ignored
+				projectFile = files.filter(p -> isProjectFile(p) && !p.getFileName().toString().startsWith("."))
+						.sorted(Comparator.comparing((Path p) -> !p.toString().endsWith(Project.CONTAINER_EXTENSION)))
+						.findFirst().orElse(null);
 			}
-			catch (IOException e) {
-				e.printStackTrace();
+			if (projectFile == null) {
+				System.out.println("No project file found in " + sourceFile);
+				deleteFolder(tempRoot);
+				return null;
+			}
+			String name = Project.readName(projectFile);
+			if (name == null)
+				name = getBaseName(projectFile);
+			Path targetRoot = Paths.get("projects", name);
+			int i = 0;
+			while (Files.exists(targetRoot)) {
+				targetRoot = Paths.get("projects", name + "_" + ++i);
 			}
-        }
-		catch (Exception e) {
+			System.out.println("Target Root: " + targetRoot);
+			Files.move(tempRoot, targetRoot);
+			return targetRoot.resolve(projectFile.getFileName());
+		} catch (IOException e) {
 			e.printStackTrace();
+			try {
+				deleteFolder(tempRoot);
+			} catch (IOException e1) {
+				e1.printStackTrace();
+			}
 		}
-        return targetRoot;
+		return null;
 	}
 
-	public static Path exportProject(Project p, Path exportFile) {
-		Path sourceRoot = p.getProjectRoot();
-		Map<String, String> env = new HashMap<>(); 
-        env.put("create", "true");
-        try {
-        URI uri = new URI("jar:"+ exportFile.toFile().toURI());
-        System.out.println(uri);
-		try (FileSystem zipfs = FileSystems.newFileSystem(uri, env)) {
-			Path targetRoot = zipfs.getPath("/");
-			Files.walkFileTree(sourceRoot, new CopyFileVisitor(targetRoot));
-			return exportFile;
-		}
-		catch (IOException e) {
-			e.printStackTrace();
+	private static void deleteFolder(Path folder) throws IOException {
+		if (!Files.exists(folder))
+			return;
+		try (Stream<Path> walk = Files.walk(folder)) {
+			List<Path> paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+			for (Path path : paths) {
+				Files.delete(path);
+			}
 		}
-        }
-		catch (URISyntaxException e) {
+	}
+
+	/**
+	 * Exports a project folder into a zip archive.
+	 * @param p				Project to be exported
+	 * @param exportFile	Zip archive to be created
+	 * @param includeOutput	Flag if the created cards should be exported as well
+	 * @return	Path of the archive, or null, if the export failed
+	 */
+	public static Path exportProject(Project p, Path exportFile, boolean includeOutput) {
+		try {
+			ProjectArchiver.export(p.getProjectRoot(), exportFile, includeOutput);
+			return exportFile;
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
-        return null;
+		return null;
 	}
 
 }
@@ -0,0 +1,449 @@
+package vv3ird.populatecard.control;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import vv3ird.populatecard.gui.StatusListener;
+
+/**
+ * Staged pipeline for writing cards to disk. Cards are rendered on the render
+ * pool, PNG encoded on the encode pool and written by the writer pool. The
+ * stages are connected by bounded queues, a full queue blocks the stage that
+ * feeds it, so rendered but not yet written images cannot pile up in memory.
+ *
+ * @author VV3IRD
+ *
+ */
+public class RenderPipeline {
+
+	/**
+	 * Number of queued jobs per thread of a stage before the feeding stage blocks
+	 */
+	private static final int QUEUE_SLOTS_PER_THREAD = 2;
+
+	/**
+	 * Number of writes in flight when writing on a shared I/O executor
+	 */
+	private static final int SHARED_WRITE_SLOTS = 64;
+
+	/**
+	 * Rendered images of a card and the files they should be written to.
+	 */
+	public static class RenderedCard {
+
+		private final String description;
+
+		private final BufferedImage[] images;
+
+		private final Path[] targets;
+
+		public RenderedCard(String description, BufferedImage[] images, Path[] targets) {
+			this.description = description;
+			this.images = images;
+			this.targets = targets;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+
+		public BufferedImage[] getImages() {
+			return images;
+		}
+
+		public Path[] getTargets() {
+			return targets;
+		}
+	}
+
+	private final Stage render;
+
+	private final Stage encode;
+
+	private final Stage write;
+
+	private final StatusListener listener;
+
+	/**
+	 * Adjusts the render threads while the pipeline is running, can be null
+	 */
+	private AdaptiveTuner tuner = null;
+
+	private final AtomicInteger rendered = new AtomicInteger();
+
+	private final AtomicInteger encoded = new AtomicInteger();
+
+	private final AtomicInteger written = new AtomicInteger();
+
+	private final AtomicInteger failed = new AtomicInteger();
+
+	private final AtomicLong renderNanos = new AtomicLong();
+
+	private final AtomicLong encodeNanos = new AtomicLong();
+
+	private final AtomicLong writeNanos = new AtomicLong();
+
+	private long started = 0;
+
+	/**
+	 * Creates a new pipeline with the given parallelism per stage.
+	 *
+	 * @param renderThreads	Threads used for drawing the cards
+	 * @param encodeThreads	Threads used for PNG encoding
+	 * @param writeThreads	Threads used for writing the files
+	 * @param listener		Listener for updates on the creation process, can be null
+	 */
+	public RenderPipeline(int renderThreads, int encodeThreads, int writeThreads, StatusListener listener) {
+		this(renderThreads, encodeThreads, writeThreads, null, listener);
+	}
+
+	/**
+	 * Creates a new pipeline with the given parallelism per stage. If an I/O
+	 * executor is given, the files are written on it instead of an own writer
+	 * pool.
+	 *
+	 * @param renderThreads	Threads used for drawing the cards
+	 * @param encodeThreads	Threads used for PNG encoding
+	 * @param writeThreads	Threads used for writing the files, ignored if an I/O executor is given
+	 * @param ioExecutor	Shared executor for blocking I/O, e.g. virtual threads, can be null
+	 * @param listener		Listener for updates on the creation process, can be null
+	 */
+	public RenderPipeline(int renderThreads, int encodeThreads, int writeThreads, ExecutorService ioExecutor, StatusListener listener) {
+		this.render = new Stage("render", renderThreads);
+		this.encode = new Stage("encode", encodeThreads);
+		this.write = ioExecutor != null ? new Stage(ioExecutor, SHARED_WRITE_SLOTS) : new Stage("write", writeThreads);
+		this.listener = listener;
+	}
+
+	/**
+	 * Lets the given tuner adjust the number of render threads after every
+	 * rendered card.
+	 *
+	 * @param tuner	Tuner for the render threads, <code>null</code> for a fixed number of threads
+	 */
+	public void setTuner(AdaptiveTuner tuner) {
+		this.tuner = tuner;
+		if (tuner != null)
+			render.resize(tuner.getBestThreads());
+	}
+
+	/**
+	 * Queues a card for rendering. Blocks while the render queue is full.
+	 *
+	 * @param card	Renders the card and returns the images with their target files
+	 * @throws InterruptedException when the thread is interrupted while waiting for a free slot
+	 */
+	public void submit(Callable<RenderedCard> card) throws InterruptedException {
+		if (started == 0)
+			started = System.nanoTime();
+		render.execute(new Runnable() {
+			@Override
+			public void run() {
+				RenderedCard rc = null;
+				try {
+					TaskScheduler.yieldToInteractive();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					failed.incrementAndGet();
+					return;
+				}
+				long start = System.nanoTime();
+				try {
+					rc = card.call();
+				} catch (Exception e) {
+					failed.incrementAndGet();
+					setText("Error drawing card: " + e.getMessage());
+					e.printStackTrace();
+					return;
+				} finally {
+					renderNanos.addAndGet(System.nanoTime() - start);
+				}
+				rendered.incrementAndGet();
+				if (tuner != null)
+					render.resize(tuner.cardFinished());
+				if (rc != null)
+					encode(rc);
+			}
+		});
+	}
+
+	/**
+	 * Encodes all images of a card in one job and hands them to the writer in the
+	 * same order, so a later image of a card always replaces an earlier one with
+	 * the same file name.
+	 */
+	private void encode(RenderedCard rc) {
+		execute(encode, new Runnable() {
+			@Override
+			public void run() {
+				BufferedImage[] images = rc.getImages();
+				byte[][] pngs = new byte[images.length][];
+				for (int i = 0; i < images.length; i++) {
+					long start = System.nanoTime();
+					try {
+						ByteArrayOutputStream os = new ByteArrayOutputStream();
+						ImageIO.write(images[i], "PNG", os);
+						pngs[i] = os.toByteArray();
+						encoded.incrementAndGet();
+					} catch (IOException e) {
+						failed.incrementAndGet();
+						setText("Error encoding " + rc.getTargets()[i].getFileName() + ": " + e.getMessage());
+						e.printStackTrace();
+					} finally {
+						encodeNanos.addAndGet(System.nanoTime() - start);
+					}
+				}
+				write(pngs, rc.getTargets(), rc.getDescription());
+			}
+		});
+	}
+
+	private void write(byte[][] pngs, Path[] targets, String description) {
+		execute(write, new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < pngs.length; i++) {
+					if (pngs[i] == null)
+						continue;
+					long start = System.nanoTime();
+					try {
+						// Cards of an imported project can be hard links to each other, a new file leaves the others unchanged
+						Files.deleteIfExists(targets[i]);
+						Files.write(targets[i], pngs[i], StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+						written.incrementAndGet();
+					} catch (IOException e) {
+						failed.incrementAndGet();
+						setText("Error writing " + targets[i].getFileName() + ": " + e.getMessage());
+						e.printStackTrace();
+					} finally {
+						writeNanos.addAndGet(System.nanoTime() - start);
+					}
+				}
+				setText(description + " written");
+			}
+		});
+	}
+
+	/**
+	 * Hands a job to the next stage from within a pipeline thread. A job
+	 * rejected by a shut down executor is counted as failed.
+	 */
+	private void execute(Stage stage, Runnable job) {
+		try {
+			stage.execute(job);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failed.incrementAndGet();
+		} catch (RejectedExecutionException e) {
+			failed.incrementAndGet();
+			setText("Error queueing a pipeline job: " + e.getMessage());
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Waits until every submitted card has passed all stages and shuts the
+	 * pipeline down. The stages are drained in order, so nothing is lost.
+	 *
+	 * @throws InterruptedException when the waiting thread is interrupted
+	 */
+	public void finish() throws InterruptedException {
+		render.drain();
+		encode.drain();
+		write.drain();
+	}
+
+	/**
+	 * Stops the pipeline without waiting for queued cards.
+	 */
+	public void cancel() {
+		render.cancel();
+		encode.cancel();
+		write.cancel();
+	}
+
+	/**
+	 * Returns a summary of the parallelism and throughput of every stage.
+	 *
+	 * @return Report of the pipeline stages
+	 */
+	public String getReport() {
+		double seconds = started > 0 ? (System.nanoTime() - started) / 1_000_000_000d : 0;
+		return String.format("%d cards in %.1fs (%.1f cards/s) | render: %s, %.1f ms/card | encode: %s, %.1f ms/image | write: %s, %.1f ms/image%s",
+				rendered.get(), seconds, seconds > 0 ? rendered.get() / seconds : 0,
+				render.describe(), perItem(renderNanos, rendered),
+				encode.describe(), perItem(encodeNanos, encoded),
+				write.describe(), perItem(writeNanos, written),
+				failed.get() > 0 ? " | " + failed.get() + " errors" : "");
+	}
+
+	public int getRenderedCount() {
+		return rendered.get();
+	}
+
+	public int getWrittenCount() {
+		return written.get();
+	}
+
+	public int getFailedCount() {
+		return failed.get();
+	}
+
+	private static double perItem(AtomicLong nanos, AtomicInteger count) {
+		return count.get() > 0 ? nanos.get() / 1_000_000d / count.get() : 0;
+	}
+
+	private void setText(String status) {
+		if (listener != null)
+			listener.setText(status);
+	}
+
+	/**
+	 * A pipeline stage. The number of queued and running jobs is bounded by a
+	 * semaphore, so handing a job to a full stage blocks until a slot is free.
+	 * The executor is either owned by the stage or shared, e.g. an I/O executor
+	 * running virtual threads. An owned executor can be resized while running.
+	 */
+	private static class Stage {
+
+		private final ExecutorService executor;
+
+		private final StageSlots slots;
+
+		private final int slotCount;
+
+		private volatile int threads;
+
+		private final boolean shared;
+
+		public Stage(String name, int threads) {
+			this.threads = threads > 0 ? threads : 1;
+			this.executor = new ThreadPoolExecutor(this.threads, this.threads, 0L, TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<Runnable>(), new StageThreadFactory(name));
+			this.slotCount = this.threads * (1 + QUEUE_SLOTS_PER_THREAD);
+			this.slots = new StageSlots(slotCount);
+			this.shared = false;
+		}
+
+		public Stage(ExecutorService executor, int slotCount) {
+			this.threads = 0;
+			this.executor = executor;
+			this.slotCount = slotCount;
+			this.slots = new StageSlots(slotCount);
+			this.shared = true;
+		}
+
+		/**
+		 * Changes the number of threads of an owned executor. The queue slots
+		 * grow and shrink with the threads.
+		 */
+		public synchronized void resize(int threads) {
+			if (shared || threads < 1 || threads == this.threads)
+				return;
+			ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+			int delta = (threads - this.threads) * (1 + QUEUE_SLOTS_PER_THREAD);
+			if (threads > this.threads) {
+				pool.setMaximumPoolSize(threads);
+				pool.setCorePoolSize(threads);
+				slots.release(delta);
+			} else {
+				pool.setCorePoolSize(threads);
+				pool.setMaximumPoolSize(threads);
+				slots.reduce(-delta);
+			}
+			this.threads = threads;
+		}
+
+		public void execute(Runnable job) throws InterruptedException {
+			slots.acquire();
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							job.run();
+						} finally {
+							slots.release();
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				slots.release();
+				throw e;
+			}
+		}
+
+		/**
+		 * Waits for all jobs of the stage, an owned executor is shut down afterwards.
+		 */
+		public void drain() throws InterruptedException {
+			if (shared) {
+				slots.acquire(slotCount);
+				slots.release(slotCount);
+			} else {
+				executor.shutdown();
+				while (!executor.awaitTermination(1, TimeUnit.SECONDS))
+					;
+			}
+		}
+
+		public void cancel() {
+			if (!shared)
+				executor.shutdownNow();
+		}
+
+		public String describe() {
+			return shared ? "shared I/O executor" : threads + " threads";
+		}
+	}
+
+	/**
+	 * Semaphore whose number of permits can be reduced while jobs hold permits.
+	 */
+	private static class StageSlots extends Semaphore {
+
+		private static final long serialVersionUID = 1L;
+
+		public StageSlots(int permits) {
+			super(permits);
+		}
+
+		public void reduce(int permits) {
+			reducePermits(permits);
+		}
+	}
+
+	private static class StageThreadFactory implements ThreadFactory {
+
+		private final String name;
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		public StageThreadFactory(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "pipeline-" + name + "-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
@@ -4,6 +4,15 @@ import vv3ird.populatecard.gui.StatusListener;
 
 public class Task implements StatusListener {
 	
+	/**
+	 * Scheduling class of a task. Interactive tasks run on a reserved lane and
+	 * never wait behind queued work, background tasks only start when no normal
+	 * task is waiting.
+	 */
+	public enum Priority {
+		INTERACTIVE, NORMAL, BACKGROUND
+	}
+	
 	private String description = null;
 	
 	private Runnable payload = null;
@@ -13,16 +22,24 @@ public class Task implements StatusListener {
 	private String status = null;
 	
 	private boolean noParallel = false;
+	
+	private Priority priority = Priority.NORMAL;
+	
 	public Task(String description, Runnable payload, StatusListener listener) {
 		this(description, payload, listener, false);
 	}
 
 	public Task(String description, Runnable payload, StatusListener listener, boolean noParallel) {
+		this(description, payload, listener, noParallel, Priority.NORMAL);
+	}
+
+	public Task(String description, Runnable payload, StatusListener listener, boolean noParallel, Priority priority) {
 		super();
 		this.description = description;
 		this.payload = payload;
 		this.listener = listener;
 		this.noParallel = noParallel;
+		this.priority = priority != null ? priority : Priority.NORMAL;
 	}
 
 	@Override
@@ -73,4 +90,8 @@ public class Task implements StatusListener {
 	public void setNoParallel(boolean noParallel) {
 		this.noParallel = noParallel;
 	}
+	
+	public Priority getPriority() {
+		return priority;
+	}
 }
@@ -1,15 +1,21 @@
 package vv3ird.populatecard.control;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import vv3ird.populatecard.control.Task.Priority;
 import vv3ird.populatecard.gui.StatusListener;
 
 public class TaskScheduler {
@@ -28,6 +34,50 @@ public class TaskScheduler {
 	
 
 	private static Queue<Task> queue = new ConcurrentLinkedQueue<>();
+	
+	/**
+	 * Tasks that only start when {@link #queue} is empty
+	 */
+	private static Queue<Task> backgroundQueue = new ConcurrentLinkedQueue<>();
+	
+	/**
+	 * Reserved lane for interactive work like previews, bypasses the queues
+	 */
+	private static ExecutorService interactiveThreads = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "interactive");
+			t.setDaemon(true);
+			t.setPriority(Thread.MAX_PRIORITY);
+			interactiveThread = t;
+			return t;
+		}
+	});
+	
+	/**
+	 * Number of interactive tasks that are queued or running
+	 */
+	private static AtomicInteger interactivePending = new AtomicInteger();
+	
+	private static final Object interactiveLock = new Object();
+	
+	private static volatile Thread interactiveThread;
+	
+	/**
+	 * Flag if blocking I/O should be moved to virtual threads
+	 */
+	private static boolean virtualThreadIo = false;
+	
+	/**
+	 * Executor for blocking I/O, only set if {@link #virtualThreadIo} is enabled
+	 */
+	private static ExecutorService ioThreads = null;
+	
+	/**
+	 * Number of running jobs using an I/O executor, a replaced executor is shut
+	 * down when its last user releases it
+	 */
+	private static final Map<ExecutorService, Integer> ioUsers = new IdentityHashMap<>();
 
 	private static Thread daemon = null;
 
@@ -47,8 +97,8 @@ public class TaskScheduler {
 						}
 						activeFutures.removeAll(oldFutures);
 						// Add new tasks
-						while(queue.size() > 0 && !changeThreadCount && activeFutures.size() < threadCount && nextTask == null && ((activeTask != null && !activeTask.noParallel()) || activeTask == null)) {
-							nextTask = queue.poll();
+						while(hasQueuedTasks() && !changeThreadCount && activeFutures.size() < threadCount && nextTask == null && ((activeTask != null && !activeTask.noParallel()) || activeTask == null)) {
+							nextTask = pollTask();
 							if (nextTask != null && !nextTask.noParallel()) {
 								activeTask = nextTask;
 								nextTask = null;
@@ -88,7 +138,16 @@ public class TaskScheduler {
 	
 	public void  addTask(Task t) {
 		t = Objects.requireNonNull(t);
-		queue.add(t);
+		switch (t.getPriority()) {
+		case INTERACTIVE:
+			submitInteractive(t.getPayload());
+			break;
+		case BACKGROUND:
+			backgroundQueue.add(t);
+			break;
+		default:
+			queue.add(t);
+		}
 	}
 	
 	public static void addTask(String description, Runnable payload, StatusListener listener) {
@@ -99,6 +158,90 @@ public class TaskScheduler {
 		queue.add(new Task(description, payload, listener, noParallel));
 	}
 	
+	/**
+	 * Adds a task with the given priority. Interactive tasks are started right
+	 * away on the reserved interactive lane, background tasks wait until no
+	 * normal task is queued.
+	 * @param description	Description of the task
+	 * @param payload		Work to be done
+	 * @param listener		Listener for status updates
+	 * @param priority		Scheduling class of the task
+	 */
+	public static void addTask(String description, Runnable payload, StatusListener listener, Priority priority) {
+		Task t = new Task(description, payload, listener, false, priority);
+		if (priority == Priority.INTERACTIVE)
+			submitInteractive(payload);
+		else if (priority == Priority.BACKGROUND)
+			backgroundQueue.add(t);
+		else
+			queue.add(t);
+	}
+	
+	/**
+	 * Runs interactive work on the reserved lane. Bulk work that calls
+	 * {@link #yieldToInteractive()} pauses until the interactive work is done.
+	 * @param payload	Work to be done, e.g. rendering a preview
+	 * @return	Future of the work
+	 */
+	public static <T> Future<T> submitInteractive(Callable<T> payload) {
+		interactivePending.incrementAndGet();
+		try {
+			return interactiveThreads.submit(new Callable<T>() {
+				@Override
+				public T call() throws Exception {
+					try {
+						return payload.call();
+					} finally {
+						interactiveDone();
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			interactiveDone();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Runs interactive work on the reserved lane.
+	 * @param payload	Work to be done
+	 * @return	Future of the work
+	 */
+	public static Future<?> submitInteractive(Runnable payload) {
+		return submitInteractive(Executors.callable(payload));
+	}
+	
+	private static void interactiveDone() {
+		synchronized (interactiveLock) {
+			if (interactivePending.decrementAndGet() <= 0)
+				interactiveLock.notifyAll();
+		}
+	}
+	
+	/**
+	 * Blocks the calling bulk worker while interactive work is queued or
+	 * running, so the interactive lane gets the CPU. Returns immediately if
+	 * called from the interactive lane itself.
+	 * @throws InterruptedException when the waiting thread is interrupted
+	 */
+	public static void yieldToInteractive() throws InterruptedException {
+		if (interactivePending.get() <= 0 || Thread.currentThread() == interactiveThread)
+			return;
+		synchronized (interactiveLock) {
+			while (interactivePending.get() > 0)
+				interactiveLock.wait(100);
+		}
+	}
+	
+	private static boolean hasQueuedTasks() {
+		return !queue.isEmpty() || !backgroundQueue.isEmpty();
+	}
+	
+	private static Task pollTask() {
+		Task t = queue.poll();
+		return t != null ? t : backgroundQueue.poll();
+	}
+	
 	public static Task getActiveTask() {
 		return activeTask;
 	}
@@ -108,11 +251,14 @@ public class TaskScheduler {
 	}
 	
 	public static Task[] getQueue() {
-		return queue.toArray(new Task[0]);
+		List<Task> tasks = new ArrayList<>(queue);
+		tasks.addAll(backgroundQueue);
+		return tasks.toArray(new Task[0]);
 	}
 	
 	public static void removeTask(Task task) {
-		queue.remove(task);
+		if (!queue.remove(task))
+			backgroundQueue.remove(task);
 	}
 
 	public static boolean hasActiveTask() {
@@ -123,6 +269,54 @@ public class TaskScheduler {
 		return getNextTask() != null;
 	}
 	
+	/**
+	 * Enables or disables running blocking I/O (media reads, writing cards,
+	 * scanning output files) on virtual threads. On JVMs without virtual threads
+	 * a pool of platform threads is used instead.
+	 * @param virtualThreadIo	<code>true</code> to run I/O on virtual threads
+	 */
+	public static synchronized void setVirtualThreadIo(boolean virtualThreadIo) {
+		if (TaskScheduler.virtualThreadIo == virtualThreadIo)
+			return;
+		TaskScheduler.virtualThreadIo = virtualThreadIo;
+		ExecutorService replaced = ioThreads;
+		ioThreads = virtualThreadIo ? VirtualThreads.newExecutor("io", Runtime.getRuntime().availableProcessors() * 4) : null;
+		// Jobs still running on the replaced executor keep it until they release it
+		if (replaced != null && !ioUsers.containsKey(replaced))
+			replaced.shutdown();
+	}
+	
+	/**
+	 * Returns the executor for blocking I/O work. Every call must be paired with
+	 * {@link #releaseIoExecutor(ExecutorService)} once the caller submitted its
+	 * last job and all of them are done, so the executor is not shut down while
+	 * it is used, if the I/O mode is changed in between.
+	 * @return	Executor running virtual threads or <code>null</code>, if I/O should be done on the calling thread.
+	 */
+	public static synchronized ExecutorService acquireIoExecutor() {
+		if (ioThreads != null)
+			ioUsers.merge(ioThreads, 1, Integer::sum);
+		return ioThreads;
+	}
+	
+	/**
+	 * Releases an executor returned by {@link #acquireIoExecutor()}. A replaced
+	 * executor is shut down after its last user released it.
+	 * @param io	Executor to release, can be <code>null</code>
+	 */
+	public static synchronized void releaseIoExecutor(ExecutorService io) {
+		if (io == null || !ioUsers.containsKey(io))
+			return;
+		int users = ioUsers.get(io) - 1;
+		if (users > 0) {
+			ioUsers.put(io, users);
+			return;
+		}
+		ioUsers.remove(io);
+		if (io != ioThreads)
+			io.shutdown();
+	}
+	
 	public static void changeThreadCount(int threadCount) {
 		System.out.println("Setting thread count (" + threadCount + ")");
 		TaskScheduler.threadCount = threadCount > 0 ? threadCount : 1;
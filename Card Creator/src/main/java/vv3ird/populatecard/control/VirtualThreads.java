@@ -0,0 +1,71 @@
+package vv3ird.populatecard.control;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates executors for blocking I/O work. On JDK 21 and newer every task runs
+ * on its own virtual thread, older runtimes get a pool of platform threads
+ * instead. The virtual thread API is looked up by reflection, so the program
+ * still runs on Java 8.
+ *
+ * @author VV3IRD
+ *
+ */
+public class VirtualThreads {
+
+	/**
+	 * Executors.newVirtualThreadPerTaskExecutor(), null if the runtime has no virtual threads
+	 */
+	private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = lookup();
+
+	private static Method lookup() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException | SecurityException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns if the running JVM supports virtual threads.
+	 *
+	 * @return <code>true</code> on JDK 21 or newer
+	 */
+	public static boolean isSupported() {
+		return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+	}
+
+	/**
+	 * Creates an executor for blocking I/O tasks.
+	 *
+	 * @param name				Name prefix for the threads of the fallback pool
+	 * @param fallbackThreads	Size of the platform thread pool used when virtual threads are not supported
+	 * @return Executor that runs every task on a virtual thread or a fixed platform thread pool
+	 */
+	public static ExecutorService newExecutor(String name, int fallbackThreads) {
+		if (NEW_VIRTUAL_THREAD_EXECUTOR != null) {
+			try {
+				return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				System.out.println("Virtual threads could not be started, falling back to platform threads");
+				e.printStackTrace();
+			}
+		} else {
+			System.out.println("Virtual threads are not supported by this JVM, using " + fallbackThreads + " platform threads for I/O");
+		}
+		return Executors.newFixedThreadPool(fallbackThreads > 0 ? fallbackThreads : 1, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+}
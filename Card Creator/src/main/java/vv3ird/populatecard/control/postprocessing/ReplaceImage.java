@@ -3,13 +3,27 @@ import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
 
 import javax.imageio.ImageIO;
 
+import vv3ird.populatecard.control.TaskScheduler;
 import vv3ird.populatecard.gui.StatusListener;
 
 public class ReplaceImage implements Runnable {
 	
+	/**
+	 * Images decoded at the same time, each decoded card needs its full size in memory
+	 */
+	private static final int MAX_DECODES = Math.max(2, Runtime.getRuntime().availableProcessors());
+	
 	private Path root = null;
 	
 	private BufferedImage target = null;
@@ -27,12 +41,46 @@ public class ReplaceImage implements Runnable {
 	}
 
 	public  void run() {
-		try {
-			Files.list(root).forEach(f -> checkImage(f, target, replacement));
+		ExecutorService io = TaskScheduler.acquireIoExecutor();
+		try (Stream<Path> files = Files.list(root)) {
+			if (io != null) {
+				// Read and compare the output files concurrently on the I/O executor, a limited number at once
+				Semaphore decodes = new Semaphore(MAX_DECODES);
+				List<Future<?>> checks = new ArrayList<>();
+				for (Iterator<Path> it = files.iterator(); it.hasNext();) {
+					Path f = it.next();
+					decodes.acquire();
+					try {
+						checks.add(io.submit(() -> {
+							try {
+								checkImage(f, target, replacement);
+							} finally {
+								decodes.release();
+							}
+						}));
+					} catch (RuntimeException e) {
+						decodes.release();
+						throw e;
+					}
+				}
+				for (Future<?> check : checks) {
+					check.get();
+				}
+			}
+			else
+				files.forEach(f -> checkImage(f, target, replacement));
 			listener.setText("Done replaceing images");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			listener.setText("Replacing images was interrupted");
+		} catch (ExecutionException e) {
+			listener.setText("An error occured while replaceing images: " + e.getCause().getMessage());
+			e.printStackTrace();
 		} catch (IOException e) {
 			listener.setText("An error occured while replaceing images: " + e.getMessage());
 			e.printStackTrace();
+		} finally {
+			TaskScheduler.releaseIoExecutor(io);
 		}
 	}
 
@@ -58,6 +106,8 @@ public class ReplaceImage implements Runnable {
 					}
 				}
 				System.out.println("Replace file " + f.toString());
+				// The file can be a hard link to other cards after an import, those must keep their image
+				Files.delete(f);
 				ImageIO.write(repalcement, f.toString().substring(f.toString().lastIndexOf(".")+1), f.toFile());
 				listener.setText("Image \"" + f.getFileName() + "\" replaced");
 				System.out.println();
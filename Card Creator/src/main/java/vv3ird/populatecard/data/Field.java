@@ -6,23 +6,23 @@ import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Image;
 import java.awt.Rectangle;
-import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 import javax.script.Invocable;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
+import vv3ird.populatecard.CardCreator;
 import vv3ird.populatecard.control.ProjectManager;
+import vv3ird.populatecard.data.text.MarkupTokenizer;
+import vv3ird.populatecard.data.text.SymbolAtlas;
+import vv3ird.populatecard.data.text.TextAttribute;
+import vv3ird.populatecard.data.text.TokenStream;
+import vv3ird.populatecard.io.RenderCache;
 
 /**
  * A Field contains an area in which content should be drawn onto the cards
@@ -39,13 +39,44 @@ import vv3ird.populatecard.control.ProjectManager;
  */
 public class Field {
 	
-	private static final ScriptEngine engine = new ScriptEngineManager().getEngineByName("nashorn");
+	/**
+	 * Script engine per thread, fields drawn at the same time must not replace
+	 * each other's calculate function and row variables
+	 */
+	private static final ThreadLocal<ScriptEngine> engine = ThreadLocal
+			.withInitial(() -> new ScriptEngineManager().getEngineByName("nashorn"));
 
 	/**
 	 * Spacing used for tabs (\t)
 	 */
 	private static final String TAB_SPACING = ".....";
 
+	/**
+	 * Namespace of the scaled images in the render cache
+	 */
+	private static final String MEDIA_CACHE = "media";
+
+	/**
+	 * Maximum number of words of a line considered by the optimal line breaking
+	 * of {@link FieldType#TEXT_JUSTIFIED}
+	 */
+	private static final int OPTIMAL_BREAK_WINDOW = 64;
+
+	/**
+	 * Demerits added for every line, optimal line breaking prefers fewer lines
+	 */
+	private static final int LINE_PENALTY = 10;
+
+	/**
+	 * Smallest font size text is shrunk to, to fit the height of a field
+	 */
+	private static final int MIN_FIT_SIZE = 4;
+
+	/**
+	 * Maximum number of layouts tried to find the font size text fits with
+	 */
+	private static final int MAX_FIT_PROBES = 6;
+
 	/**
 	 * Name of the Field
 	 */
@@ -116,6 +147,17 @@ public class Field {
 	 */
 	private boolean resizeText = false;
 
+	/**
+	 * Flag if the font size should be reduced until the whole text fits the height
+	 * of the field
+	 */
+	private boolean fitText = false;
+
+	/**
+	 * Style of the field, kept until the font or size changes
+	 */
+	private transient FieldStyle fieldStyle = null;
+
 	public Field(String name, Dimension pos1, Dimension pos2, Color outlineColor) {
 		this(name, pos1, pos2, outlineColor, CardSide.FRONT);
 	}
@@ -356,6 +398,23 @@ public class Field {
 	public void setResizeText(boolean resizeText) {
 		this.resizeText = resizeText;
 	}
+
+	public boolean isFitText() {
+		return fitText;
+	}
+
+	public void setFitText(boolean fitText) {
+		this.fitText = fitText;
+	}
+
+	public VerticalTextAlignment getVerticalAlignment() {
+		// Fields saved before the alignment could be set have none
+		return verticalAlignment != null ? verticalAlignment : VerticalTextAlignment.TEXT_TOP;
+	}
+
+	public void setVerticalAlignment(VerticalTextAlignment verticalAlignment) {
+		this.verticalAlignment = verticalAlignment;
+	}
 	
 	public void drawContent(Graphics2D gFront, Graphics2D gRear, String text, Map<String, String> rowData) {
 		this.drawContent(gFront, gRear, text, this.getFieldStyle(), rowData);
@@ -373,8 +432,8 @@ public class Field {
 			System.out.println("Has JS: " + (this.javaScript != null));
 			if (this.javaScript != null)
 				text = evalJS(text, rowData);
-			List<String> paragraphs = splitIntoParagraphs(text, "-n-");
-			drawParagraphs(gFront, gRear, paragraphs, fieldStyle);
+			TokenStream tokens = MarkupTokenizer.tokenize(text, this.indented);
+			drawFlow(gFront, gRear, tokens, fieldStyle);
 		}
 	}
 	
@@ -391,6 +450,7 @@ public class Field {
 		System.out.println(js);
 		System.out.println("--------------------------------------------------");
 	    try {
+			ScriptEngine engine = Field.engine.get();
 			engine.eval(js);
 			Invocable invocable = (Invocable) engine;
 			Object result = invocable.invokeFunction("calculate", text);
@@ -404,232 +464,602 @@ public class Field {
 	}
 
 	public FieldStyle getFieldStyle() {
-		return new FieldStyle(this);
+		FieldStyle s = fieldStyle;
+		if (s == null || !s.isStyleOf(CardCreator.getFont(font), fontSize, isItalic(), isBold()))
+			fieldStyle = s = FieldStyle.of(this);
+		return s;
+	}
+
+	/**
+	 * Lays out and draws a text across this field and its linked fields. Every
+	 * field continues where the previous one ended, so the text is laid out only
+	 * once, no matter how long the chain is. The layouts are kept in the scratch
+	 * of the thread, nothing is allocated per card.
+	 * 
+	 * @param gFront
+	 *            Graphics of the front image
+	 * @param gRear
+	 *            Graphics of the rear image
+	 * @param tokens
+	 *            Tokens of the text
+	 * @param fieldStyle
+	 *            Style the text starts with
+	 */
+	private void drawFlow(Graphics2D gFront, Graphics2D gRear, TokenStream tokens, FieldStyle fieldStyle) {
+		LayoutScratch scratch = LayoutScratch.get();
+		int from = 0;
+		try {
+			// Fields linked in a circle are only filled once
+			for (Field box = this; box != null && scratch.fill(box); box = box.getLinkedField()) {
+				Graphics2D g = box.getSide() == CardSide.FRONT ? gFront : gRear;
+				TextLayout layout = box.fitText ? box.layoutToFit(tokens, from, fieldStyle, scratch.layouts, g)
+						: box.layout(tokens, from, fieldStyle, 0, scratch.layouts[0], g);
+				box.draw(layout, g);
+				if (!layout.overflow)
+					break;
+				from = layout.getEnd();
+				fieldStyle = layout.getEndStyle();
+			}
+		} finally {
+			scratch.clearFilled();
+		}
 	}
 
-	protected void drawParagraphs(Graphics2D gFront, Graphics2D gRear, List<String> paragraphs, FieldStyle fieldStyle) {
-		FieldStyle newStyle = new FieldStyle(this);
+	/**
+	 * Lays out the text in this field with the largest font size, that lets the
+	 * whole text fit the height of the field. The size is found by a binary search
+	 * with at most {@link #MAX_FIT_PROBES} layouts, if the text does not even fit
+	 * with the smallest size, the rest is continued on the linked field.
+	 * 
+	 * @param layouts
+	 *            Three layouts to be filled, the best one is returned
+	 * @return Lines placed in this field
+	 */
+	TextLayout layoutToFit(TokenStream tokens, int from, FieldStyle fieldStyle, TextLayout[] layouts, Graphics2D g) {
+		TextLayout layout = layout(tokens, from, fieldStyle, 0, layouts[0], g);
+		int low = Math.min(MIN_FIT_SIZE, fontSize);
+		int high = fontSize - 1;
+		TextLayout best = null;
+		TextLayout candidate = layouts[1];
+		for (int probe = 1; !layout.isComplete() && probe < MAX_FIT_PROBES && low <= high; probe++) {
+			int size = (low + high + 1) / 2;
+			layout(tokens, from, fieldStyle, fontSize - size, candidate, g);
+			if (candidate.isComplete()) {
+				TextLayout spare = best != null ? best : layouts[2];
+				best = candidate;
+				candidate = spare;
+				low = size + 1;
+			} else
+				high = size - 1;
+		}
+		if (best != null)
+			return best;
+		if (!layout.isComplete() && fontSize > MIN_FIT_SIZE)
+			return layout(tokens, from, fieldStyle, fontSize - MIN_FIT_SIZE, layout, g);
+		return layout;
+	}
+
+	/**
+	 * Lays out the paragraphs of a token stream in this field, starting at the
+	 * given token. The layout ends with the first line that does not fit into the
+	 * field, nothing is drawn.
+	 * 
+	 * @param tokens
+	 *            Tokens of the text
+	 * @param from
+	 *            Index of the first token to be placed
+	 * @param fieldStyle
+	 *            Style of the text placed before, only bold, italic and small caps
+	 *            are taken over, the size only if a size span is open
+	 * @param shrink
+	 *            Points the font size of the field is reduced by
+	 * @param layout
+	 *            Layout to be filled, its previous lines are dropped
+	 * @param g
+	 *            Graphics the text is drawn with
+	 * @return The layout, with the lines placed in this field
+	 */
+	TextLayout layout(TokenStream tokens, int from, FieldStyle fieldStyle, int shrink, TextLayout layout, Graphics2D g) {
+		LayoutScratch scratch = LayoutScratch.get();
+		FieldStyle newStyle = getFieldStyle().resize(shrinkSize(fontSize, shrink));
 		if(fieldStyle.bold)
 			newStyle = newStyle.bold();
 		if(fieldStyle.italic)
 			newStyle = newStyle.italic();
+		newStyle = newStyle.smallCaps(fieldStyle.smallCaps);
+		int sizeSpan = tokens.getOpenSpan(from, TextAttribute.SIZE);
+		if (sizeSpan >= 0)
+			newStyle = newStyle.resize(Math.max(1, shrinkSize(tokens.getSpanValue(sizeSpan), shrink)));
 		fieldStyle = newStyle;
-		Graphics2D g = this.getSide() == CardSide.FRONT ? gFront : gRear;
 		g.setFont(fieldStyle.getFont());
-		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		CardCreator.getRenderQuality().applyTo(g);
+		layout.reset(tokens, from);
 		int width = this.rect.width;
-		List<String> drawnLines = new LinkedList<>();
-		List<String> drawnParagraphs = new LinkedList<>();
+		int drawnLines = 0;
 		int imageHeightOffset = 0;
-		for (String paragraph : paragraphs) {
-			// Prepare paragraph to be drawn on surface
-			String textToDraw = paragraph;
+		// Bottom of the last line placed, including the space above the first line
+		int bottom = 0;
+		int next = from;
+		while (next < tokens.size()) {
+			int start = tokens.getType(next) == TokenStream.PARAGRAPH ? next + 1 : next;
+			int end = tokens.getParagraphEnd(start);
+			next = end;
+			boolean image = start < end && tokens.getType(start) == TokenStream.IMAGE;
 			// Resize font if text should be resized to fit
-			if (resizeText) {
-				// calc string width
-				char[] calcString = textToDraw.replace("\t", TAB_SPACING).toCharArray();
-				int stringWidth = 0;
-				FieldStyle fieldStyleCalc = fieldStyle.clone();
-				stringWidth = calculateStringWidth(calcString, fieldStyleCalc, g);
-				while (stringWidth > width) {
+			if (resizeText && !image) {
+				int stringWidth = measure(tokens, start, end, fieldStyle, shrink, true, g);
+				while (stringWidth > width && fieldStyle.size > 0) {
 					fieldStyle = fieldStyle.smaller();
-					fieldStyleCalc = fieldStyle.clone();
-					stringWidth = calculateStringWidth(calcString, fieldStyleCalc, g);
-				}
-			}
-			List<String> lines = new LinkedList<>();
-			String[] arr = textToDraw.split(" ");
-			int[] wordWidth = new int[arr.length];
-			FieldStyle fontCalc = fieldStyle.clone();
-			String line = "";
-			int lineWidth = 0;
-			int spaceWidth = fieldStyle.noBold().noItalic().getMetrics(g).stringWidth(" ");
-			int tabLength =  fieldStyle.noBold().noItalic().getMetrics(g).stringWidth(TAB_SPACING);
-			for (int f = 0; f < wordWidth.length; f++) {
-				char[] calcString = arr[f].replace("\t", TAB_SPACING).replace("-$-", "").toCharArray();
-				int stringWidth = 0;
-				for (int i = 0; i < calcString.length; i++) {
-					fontCalc = checkFontChange(calcString, i, fontCalc);
-					if (fontCalc.hasChangedToBold() || fontCalc.hasChangedToItalic())
-						i += 3;
-					else if (fontCalc.hasChangedFromBold() || fontCalc.hasChangedFromItalic())
-						i += 4;
-					if (i < calcString.length)
-						stringWidth += fontCalc.getMetrics(g).stringWidth(String.valueOf(calcString[i]));
-				}
-				wordWidth[f] = stringWidth;
-				if (lineWidth + (lineWidth > 0 ? spaceWidth : 0) + wordWidth[f] < width) {
-					line += (!line.isEmpty() ? " " : "") + arr[f];
-					lineWidth += (lineWidth > 0 ? spaceWidth : 0) + wordWidth[f];
-				} else {
-					if (!line.isEmpty())
-						lines.add(line.charAt(0) == ' ' ? line.substring(1) : line);
-					line = (!line.isEmpty() ? " " : "") + arr[f];
-					lineWidth = wordWidth[f];
+					shrink++;
+					stringWidth = measure(tokens, start, end, fieldStyle, shrink, true, g);
 				}
 			}
-			if (!line.isEmpty() && !line.equals(" ")) {
-				lines.add(line.charAt(0) == ' ' ? line.substring(1) : line);
-			}
-			drawnParagraphs.add(paragraph);
-			// Draw lines on surface, continue overspilling text onto linked fields if
-			// possible.
-			int y = fieldStyle.getMetrics(g).getAscent() + 2 + (fieldStyle.getMetrics(g).getHeight() * drawnLines.size());
-			if (this.verticalAlignment == VerticalTextAlignment.TEXT_CENTER) {
-				int removeLine = 0;
-				do {
-				y = ((rect.height - fieldStyle.getMetrics(g).getHeight()) / 2) + fieldStyle.getMetrics(g).getAscent() + 2;
-				if (drawnLines.size() > 1)
-					y = y - ((fieldStyle.getMetrics(g).getHeight() * (drawnLines.size() - (1 + removeLine)) / 2));
-				removeLine++;
-				} while (y < 0);
-			}
-			
-			for (String l : lines) {
-				String orgLine = l;
-				boolean endOfParagraph = l.endsWith("-$-");
-				if (endOfParagraph)
-					l = l.substring(0, l.lastIndexOf("-$-"));
-				boolean indented = l.startsWith("\t");
+			FieldStyle plainStyle = fieldStyle.noBold().noItalic();
+			int spaceWidth = plainStyle.getMetrics(g).stringWidth(" ");
+			int tabLength =  plainStyle.getMetrics(g).stringWidth(TAB_SPACING);
+			int lines = breakLines(tokens, start, end, fieldStyle, shrink, spaceWidth, scratch, g);
+			// Place lines in the field, the overspilling text is continued on the
+			// linked field if possible.
+			int ascent = fieldStyle.getMetrics(g).getAscent();
+			int y = ascent + 2 + (fieldStyle.getMetrics(g).getHeight() * drawnLines);
+			for (int li = 0; li < lines; li++) {
+				int lineFrom = scratch.lineFrom[li];
+				int lineTo = scratch.lineTo[li];
+				boolean endOfParagraph = lineTo == end;
+				boolean indented = lineFrom < lineTo && tokens.getType(lineFrom) == TokenStream.TAB;
 				if (indented)
-					l = l.substring(1);
-				String[] words = l.split(" ");
-				// Setup spacing independent of italic or bold
-				int spacing = fieldStyle.noBold().noItalic().getMetrics(g).stringWidth(" ");
-				//** Setup linestart, depending on set text alignment, default is left aligned (0)
-				int lineStart = indented ? fieldStyle.noBold().noItalic().getMetrics(g).stringWidth(TAB_SPACING) : 0;
-				// Check for either centered or right aligned text
-				if (this.type == Field.FieldType.TEXT_CENTER || this.type == Field.FieldType.TEXT_RIGHT) {
-					// calculate line width
-					char[] calcString = l.toCharArray();
-					fontCalc = fieldStyle.clone();
-					lineWidth = calculateStringWidth(calcString, fontCalc, g);
-					lineStart = (rect.width - lineWidth);
-					if (this.type == Field.FieldType.TEXT_CENTER)
-						lineStart = lineStart / 2;
-				}
-				// Check and calculate spacing for text in block format
-				if (this.type == Field.FieldType.TEXT_BLOCK) {
-					// Calc total width of all characters except whitepsace
-					char[] calcString = l.replace(" ", "").replace("-$-", "").toCharArray();
-					fontCalc = fieldStyle.clone();
-					int lineWordWidth = calculateStringWidth(calcString, fontCalc, g);
-					spacing = (rect.width - lineWordWidth - lineStart) / (words.length > 1 ? words.length - 1 : words.length);
-					if (lineWordWidth + spaceWidth * words.length < rect.width * 0.60f || endOfParagraph)
-						spacing = spaceWidth;
-				}
-				// If the given line is a base 64 encoded image, decode it and draw if possible
-				if (ProjectManager.isBase64Image(l)) {
-					BufferedImage bimg = ProjectManager.decodeImageFromBase64(l.substring(6, l.lastIndexOf("</imgb>")));
-					if (bimg != null) {
-						int height = (int) ((((float) rect.getWidth()) / bimg.getWidth()) * bimg.getHeight());
-						Image img = bimg.getScaledInstance((int) rect.getWidth(), height, BufferedImage.SCALE_SMOOTH);
+					lineFrom++;
+				boolean placed = true;
+				// If the given line is a base 64 encoded image, decode it and place it if possible
+				if (image) {
+					double scale = getScale(g);
+					BufferedImage img = getScaledImage(tokens.getString(start), false, scale);
+					if (img != null) {
+						int height = unscale(img.getHeight(), scale);
 						if (height + y + imageHeightOffset <= rect.height)
-							g.drawImage(img, rect.x, rect.y + y, null);
+							layout.addImage(start, y, img);
 						imageHeightOffset += height;
 					}
-					if (imageHeightOffset + y <= rect.height) {
-						drawnLines.add(orgLine);
+					placed = imageHeightOffset + y <= rect.height;
+					if (placed) {
+						drawnLines++;
 						imageHeightOffset += fieldStyle.getMetrics(g).getHeight();
 					}
 				} else {
-					// Draw char for char with the correct spacing
-					int caret = 0;
-					// System.out.println("Line: \"" + l + "\"");
-					char[] lineArray = l.toCharArray();
-					for (int i = 0; i < lineArray.length; i++) {
-						fieldStyle = checkFontChange(lineArray, i, fieldStyle);
-						if (fieldStyle.hasChangedToBold() || fieldStyle.hasChangedToItalic())
-							i += 3;
-						else if (fieldStyle.hasChangedFromBold() || fieldStyle.hasChangedFromItalic())
-							i += 4;
-						g.setFont(fieldStyle.getFont());
-						if (i >= lineArray.length)
-							break;
-						if (lineArray[i] == ' ')
-							caret += spacing;
-						else if (lineArray[i] == '\t')
-							caret += tabLength;
-						else {
-							g.drawString(String.valueOf(lineArray[i]), rect.x + lineStart + caret,
-									rect.y + y + imageHeightOffset);
-							caret += fieldStyle.getMetrics(g).stringWidth(String.valueOf(lineArray[i]));
+					// Setup spacing independent of italic or bold
+					int spacing = spaceWidth;
+					//** Setup linestart, depending on set text alignment, default is left aligned (0)
+					int lineStart = indented ? tabLength : 0;
+					// Check for either centered or right aligned text
+					if (this.type == Field.FieldType.TEXT_CENTER || this.type == Field.FieldType.TEXT_RIGHT) {
+						// calculate line width
+						int lineWidth = measure(tokens, lineFrom, lineTo, fieldStyle, shrink, true, g);
+						lineStart = (rect.width - lineWidth);
+						if (this.type == Field.FieldType.TEXT_CENTER)
+							lineStart = lineStart / 2;
+					}
+					// Spaces of justified lines are stretched to the width of the field, the
+					// remaining pixels are spread over the first spaces
+					int stretch = 0;
+					if (this.type == Field.FieldType.TEXT_JUSTIFIED && !endOfParagraph) {
+						int lineWordWidth = measure(tokens, lineFrom, lineTo, fieldStyle, shrink, false, g);
+						int gaps = countSpaces(tokens, lineFrom, lineTo);
+						int slack = rect.width - lineWordWidth - lineStart;
+						if (gaps > 0 && slack > spaceWidth * gaps) {
+							spacing = slack / gaps;
+							stretch = slack % gaps;
 						}
 					}
-					drawnLines.add(orgLine);
-					y += fieldStyle.getMetrics(g).getHeight();
+					// Check and calculate spacing for text in block format
+					if (this.type == Field.FieldType.TEXT_BLOCK) {
+						// Calc total width of all characters except whitepsace
+						int lineWordWidth = measure(tokens, lineFrom, lineTo, fieldStyle, shrink, false, g);
+						int words = countWords(tokens, lineFrom, lineTo);
+						spacing = (rect.width - lineWordWidth - lineStart) / Math.max(1, words > 1 ? words - 1 : words);
+						if (lineWordWidth + spaceWidth * words < rect.width * 0.60f || endOfParagraph)
+							spacing = spaceWidth;
+					}
+					// Tallest style used in the line, larger text moves the baseline of the line down
+					FieldStyle lineStyle = fieldStyle;
+					FieldStyle tallest = fieldStyle;
+					for (int t = lineFrom; t < lineTo; t++) {
+						fieldStyle = changeStyle(fieldStyle, tokens, t, shrink);
+						if (fieldStyle.size > tallest.size)
+							tallest = fieldStyle;
+					}
+					int extraAscent = Math.max(0, tallest.getMetrics(g).getAscent() - lineStyle.getMetrics(g).getAscent());
+					y += extraAscent;
+					layout.addText(lineFrom, lineTo, lineStart, y + imageHeightOffset, spacing, stretch, tabLength, shrink, lineStyle, plainStyle);
+					drawnLines++;
+					y += (tallest.size > fieldStyle.size ? tallest : fieldStyle).getMetrics(g).getHeight() - extraAscent;
 				}
+				bottom = y + imageHeightOffset - ascent;
 				// If end of Field is reached, the rest of the text is either transfered to the
 				// linked field or not drawn at all
-				if ((y + imageHeightOffset) > rect.height && this.hasLinkedField()) {
-					List<String> linesToCopyOver = new LinkedList<>();
-					linesToCopyOver.addAll(lines);
-					linesToCopyOver.removeAll(drawnLines);
-					String restParagraph = linesToCopyOver.stream().collect(Collectors.joining(" "));
-					List<String> paragraphsToCopyOver = new LinkedList<>();
-					List<String> restParagraphs = new LinkedList<>();
-					paragraphsToCopyOver.add(restParagraph);
-					restParagraphs.addAll(paragraphs);
-					restParagraphs.removeAll(drawnParagraphs);
-					paragraphsToCopyOver.addAll(restParagraphs);
-					this.getLinkedField().drawParagraphs(gFront, gRear, paragraphsToCopyOver, fieldStyle);
-					return;
-				} else if ((y + imageHeightOffset) > rect.height) {
-					return;
+				if ((y + imageHeightOffset) > rect.height) {
+					layout.overflow = true;
+					layout.end = !placed ? scratch.lineFrom[li] : li + 1 < lines ? scratch.lineFrom[li + 1] : end;
+					layout.endStyle = fieldStyle;
+					align(layout, bottom);
+					return layout;
 				}
 			}
 		}
+		layout.end = tokens.size();
+		layout.endStyle = fieldStyle;
+		align(layout, bottom);
+		return layout;
+	}
 
+	/**
+	 * Moves the lines of a layout down to the vertical alignment of the field.
+	 * Only layouts holding the rest of the text are moved, a field that is filled
+	 * up is always aligned to the top.
+	 * 
+	 * @param bottom
+	 *            Bottom of the last line, relative to the field
+	 */
+	private void align(TextLayout layout, int bottom) {
+		VerticalTextAlignment alignment = getVerticalAlignment();
+		if (alignment == VerticalTextAlignment.TEXT_TOP || !layout.isComplete())
+			return;
+		// The lines start 2 pixels below the top of the field
+		int offset = alignment == VerticalTextAlignment.TEXT_CENTER ? (rect.height - bottom + 2) / 2 - 2
+				: rect.height - bottom;
+		layout.offset = Math.max(0, offset);
 	}
 
-	private FieldStyle checkFontChange(char[] calcString, int i, FieldStyle fieldStyle) {
-		fieldStyle.notChanged();
-		if (i < 0 || i >= calcString.length)
-			return fieldStyle;
-		// check for bold
-		if (calcString[i] == '<' && this.startsAt(calcString, i, "<b>".toCharArray())) {
-			fieldStyle = fieldStyle.bold();
-		} else if (calcString[i] == '<' && this.startsAt(calcString, i, "</b>".toCharArray())) {
-			fieldStyle = fieldStyle.noBold();
+	/**
+	 * Draws the lines of a layout of this field.
+	 * 
+	 * @param layout
+	 *            Layout created by
+	 *            {@link #layout(TokenStream, int, FieldStyle, int, TextLayout, Graphics2D)}
+	 * @param g
+	 *            Graphics to draw on
+	 */
+	void draw(TextLayout layout, Graphics2D g) {
+		LayoutScratch scratch = LayoutScratch.get();
+		TokenStream tokens = layout.tokens;
+		char[] text = tokens.getText();
+		// Color spans return to the color of the graphics, which is restored at the end
+		Color textColor = g.getColor();
+		int colorSpan = tokens.getOpenSpan(layout.from, TextAttribute.COLOR);
+		if (colorSpan >= 0)
+			g.setColor(scratch.getColor(tokens.getSpanValue(colorSpan)));
+		for (int line = 0; line < layout.lines; line++) {
+			if (layout.image[line] != null) {
+				drawScaledImage(g, layout.image[line], rect.x, rect.y + layout.y[line] + layout.offset);
+				continue;
+			}
+			FieldStyle fieldStyle = layout.style[line];
+			FieldStyle plainStyle = layout.plain[line];
+			int shrink = layout.shrink[line];
+			int lineStart = rect.x + layout.x[line];
+			int baseline = rect.y + layout.y[line] + layout.offset;
+			// Draw char for char with the correct spacing
+			int caret = 0;
+			int gap = 0;
+			g.setFont(fieldStyle.getFont());
+			for (int t = layout.lineFrom[line]; t < layout.lineTo[line]; t++) {
+				int type = tokens.getType(t);
+				SymbolAtlas.Glyph glyph = type == TokenStream.SYMBOL ? getSymbol(tokens, t, fieldStyle, g) : null;
+				if (glyph != null) {
+					drawSymbol(g, glyph, lineStart + caret, baseline);
+					caret += unscale(glyph.getWidth(), getScale(g));
+				} else if (type == TokenStream.TEXT || type == TokenStream.SYMBOL) {
+					FontMetrics fm = fieldStyle.getMetrics(g);
+					for (int i = tokens.getStart(t); i < tokens.getEnd(t); i++) {
+						if (fieldStyle.smallCaps && Character.isLowerCase(text[i])) {
+							FieldStyle capitals = fieldStyle.getCapitals();
+							char c = Character.toUpperCase(text[i]);
+							scratch.capital[0] = c;
+							g.setFont(capitals.getFont());
+							g.drawChars(scratch.capital, 0, 1, lineStart + caret, baseline);
+							g.setFont(fieldStyle.getFont());
+							caret += capitals.getMetrics(g).charWidth(c);
+						} else {
+							g.drawChars(text, i, 1, lineStart + caret, baseline);
+							caret += fm.charWidth(text[i]);
+						}
+					}
+				} else if (type == TokenStream.SPACE)
+					caret += layout.spacing[line] + (gap++ < layout.stretch[line] ? 1 : 0) + spaceDelta(fieldStyle, plainStyle, g);
+				else if (type == TokenStream.TAB)
+					caret += layout.tabLength[line];
+				else if (isSpan(tokens, t, TextAttribute.COLOR)) {
+					int span = tokens.getType(t) == TokenStream.SPAN_START ? tokens.getValue(t)
+							: tokens.getSpanOuter(tokens.getValue(t));
+					g.setColor(span >= 0 ? scratch.getColor(tokens.getSpanValue(span)) : textColor);
+				} else {
+					fieldStyle = changeStyle(fieldStyle, tokens, t, shrink);
+					g.setFont(fieldStyle.getFont());
+				}
+			}
 		}
-		// check for italic
-		else if (i < calcString.length && calcString[i] == '<'
-				&& this.startsAt(calcString, i, "<i>".toCharArray())) {
-			fieldStyle = fieldStyle.italic();
-		} else if (i < calcString.length && calcString[i] == '<'
-				&& this.startsAt(calcString, i, "</i>".toCharArray())) {
-			fieldStyle = fieldStyle.noItalic();
+		g.setColor(textColor);
+	}
+
+	/**
+	 * Breaks a paragraph into lines. A line is filled with words as long as they
+	 * fit into the field.
+	 * 
+	 * @param scratch
+	 *            Scratch of the thread, receives the lines
+	 * @return Number of lines, stored as ranges of tokens in the scratch
+	 */
+	private int breakLines(TokenStream tokens, int start, int end, FieldStyle fieldStyle, int shrink, int spaceWidth,
+			LayoutScratch scratch, Graphics2D g) {
+		// Measure the words, the style changes inside of words carry over to the next one
+		int wordCount = 1;
+		for (int t = start; t < end; t++) {
+			if (tokens.getType(t) == TokenStream.SPACE)
+				wordCount++;
+		}
+		scratch.clearWords(wordCount);
+		scratch.lines = 0;
+		int[] wordStart = scratch.wordStart;
+		int[] wordEnd = scratch.wordEnd;
+		int[] wordWidth = scratch.wordWidth;
+		FieldStyle fontCalc = fieldStyle;
+		int word = 0;
+		wordStart[0] = start;
+		for (int t = start; t < end; t++) {
+			int type = tokens.getType(t);
+			if (type == TokenStream.SPACE) {
+				// Spaces of text in another size are wider or narrower
+				wordWidth[word] += spaceDelta(fontCalc, fieldStyle.noBold().noItalic(), g);
+				wordEnd[word] = t;
+				wordStart[++word] = t + 1;
+			} else if (type == TokenStream.IMAGE)
+				wordWidth[word] += this.rect.width;
+			else if (type == TokenStream.TEXT || type == TokenStream.TAB || type == TokenStream.SYMBOL)
+				wordWidth[word] += measure(tokens, t, t + 1, fontCalc, shrink, false, g);
+			else
+				fontCalc = changeStyle(fontCalc, tokens, t, shrink);
 		}
-		return fieldStyle;
-	}
-
-	private int calculateStringWidth(char[] calcString, FieldStyle fontCalc, Graphics2D g) {
-		int stringWidth = 0;
-		for (int i = 0; i < calcString.length; i++) {
-			fontCalc = checkFontChange(calcString, i, fontCalc);
-			if (fontCalc.hasChangedToBold() || fontCalc.hasChangedToItalic())
-				i += 3;
-			else if (fontCalc.hasChangedFromBold() || fontCalc.hasChangedFromItalic())
-				i += 4;
-			if (i < calcString.length)
-				stringWidth += fontCalc.getMetrics(g).stringWidth(String.valueOf(calcString[i]));
+		wordEnd[word] = end;
+		if (this.type == FieldType.TEXT_JUSTIFIED)
+			return breakLinesOptimal(wordCount, spaceWidth, scratch);
+		// Fill lines with words, empty words from double spaces do not start a line
+		int width = this.rect.width;
+		int lineWidth = 0;
+		int lineFirst = 0;
+		boolean lineEmpty = true;
+		boolean lineSpaceOnly = false;
+		for (int f = 0; f < wordCount; f++) {
+			boolean emptyWord = wordStart[f] == wordEnd[f] && f < wordCount - 1;
+			if (lineWidth + (lineWidth > 0 ? spaceWidth : 0) + wordWidth[f] < width) {
+				if (lineEmpty && !emptyWord)
+					lineFirst = f;
+				lineEmpty = lineEmpty && emptyWord;
+				lineSpaceOnly = false;
+				lineWidth += (lineWidth > 0 ? spaceWidth : 0) + wordWidth[f];
+			} else {
+				if (!lineEmpty)
+					scratch.addLine(wordStart[lineFirst], wordEnd[f - 1]);
+				lineSpaceOnly = !lineEmpty && emptyWord;
+				lineEmpty = lineEmpty && emptyWord;
+				lineFirst = f;
+				lineWidth = wordWidth[f];
+			}
 		}
-		return stringWidth;
+		if (!lineEmpty && !lineSpaceOnly)
+			scratch.addLine(wordStart[lineFirst], wordEnd[wordCount - 1]);
+		return scratch.lines;
 	}
 
-	private boolean startsAt(char[] calcString, int i, char[] charArray) {
-		boolean startsWith = true;
-		if (calcString.length < i + charArray.length)
-			startsWith = false;
-		else {
-			for (int j = 0; j < charArray.length; j++) {
-				if (calcString[i + j] != charArray[j]) {
-					startsWith = false;
+	/**
+	 * Breaks a paragraph into lines, so the spaces of all lines are stretched as
+	 * evenly as possible (total fit). For every word, the best way to end a line
+	 * with it is found from the best breaks before, looking back at most
+	 * {@link #OPTIMAL_BREAK_WINDOW} words. The widths of the words are measured
+	 * once, so the cost of a line is computed from prefix sums.
+	 * 
+	 * @param wordCount
+	 *            Number of words measured in the scratch
+	 * @return Number of lines, stored as ranges of tokens in the scratch
+	 */
+	private int breakLinesOptimal(int wordCount, int spaceWidth, LayoutScratch scratch) {
+		int[] wordStart = scratch.wordStart;
+		int[] wordEnd = scratch.wordEnd;
+		int[] wordWidth = scratch.wordWidth;
+		int width = this.rect.width;
+		scratch.clearBreaks(wordCount);
+		long[] prefix = scratch.prefix;
+		prefix[0] = 0;
+		for (int w = 0; w < wordCount; w++)
+			prefix[w + 1] = prefix[w] + wordWidth[w];
+		// demerits[j] is the minimum of all breaks before word j, previous[j] the start of its last line
+		double[] demerits = scratch.demerits;
+		int[] previous = scratch.previous;
+		demerits[0] = 0;
+		for (int j = 1; j <= wordCount; j++) {
+			demerits[j] = Double.MAX_VALUE;
+			for (int i = j - 1; i >= 0 && i >= j - OPTIMAL_BREAK_WINDOW; i--) {
+				int gaps = j - 1 - i;
+				long natural = prefix[j] - prefix[i] + (long) gaps * spaceWidth;
+				// A single word always gets a line, even if it is too wide
+				if (natural >= width && gaps > 0)
 					break;
+				// The last line is not stretched, a single word is rated like a line with one space
+				double badness = 0;
+				if (j < wordCount) {
+					// Stretching every space to twice its width has a badness of 100
+					double ratio = (double) Math.max(0, width - natural) / (Math.max(1, gaps) * Math.max(1, spaceWidth));
+					badness = 100 * ratio * ratio * ratio;
+				}
+				double d = demerits[i] + (LINE_PENALTY + badness) * (LINE_PENALTY + badness);
+				if (d < demerits[j]) {
+					demerits[j] = d;
+					previous[j] = i;
 				}
 			}
 		}
-		return startsWith;
+		// Collect the lines from the end, empty words from double spaces do not start a line
+		for (int j = wordCount; j > 0; j = previous[j]) {
+			int first = previous[j];
+			while (first < j - 1 && wordStart[first] == wordEnd[first])
+				first++;
+			scratch.addLine(wordStart[first], wordEnd[j - 1]);
+		}
+		scratch.reverseLines();
+		return scratch.lines;
+	}
+
+	/**
+	 * Returns the width of a range of tokens. Style changes are applied while
+	 * measuring, tabs are as wide as they are drawn.
+	 * 
+	 * @param shrink
+	 *            Points the text has been shrunk to fit into the field
+	 * @param spaces
+	 *            Flag if spaces should be measured, otherwise they are ignored
+	 */
+	private int measure(TokenStream tokens, int from, int to, FieldStyle fieldStyle, int shrink, boolean spaces, Graphics2D g) {
+		char[] text = tokens.getText();
+		int width = 0;
+		for (int t = from; t < to; t++) {
+			int type = tokens.getType(t);
+			SymbolAtlas.Glyph glyph = type == TokenStream.SYMBOL ? getSymbol(tokens, t, fieldStyle, g) : null;
+			if (glyph != null) {
+				width += unscale(glyph.getWidth(), getScale(g));
+			} else if (type == TokenStream.TEXT || type == TokenStream.SYMBOL) {
+				FontMetrics fm = fieldStyle.getMetrics(g);
+				for (int i = tokens.getStart(t); i < tokens.getEnd(t); i++) {
+					if (fieldStyle.smallCaps && Character.isLowerCase(text[i]))
+						width += fieldStyle.getCapitals().getMetrics(g).charWidth(Character.toUpperCase(text[i]));
+					else
+						width += fm.charWidth(text[i]);
+				}
+			} else if (type == TokenStream.SPACE) {
+				if (spaces)
+					width += fieldStyle.getMetrics(g).charWidth(' ');
+			} else if (type == TokenStream.TAB)
+				width += fieldStyle.noBold().noItalic().getMetrics(g).stringWidth(TAB_SPACING);
+			else
+				fieldStyle = changeStyle(fieldStyle, tokens, t, shrink);
+		}
+		return width;
+	}
+
+	/**
+	 * Counts the spaces of a line.
+	 */
+	private static int countSpaces(TokenStream tokens, int from, int to) {
+		int spaces = 0;
+		for (int t = from; t < to; t++) {
+			if (tokens.getType(t) == TokenStream.SPACE)
+				spaces++;
+		}
+		return spaces;
+	}
+
+	/**
+	 * Counts the words of a line, trailing spaces are not counted as words.
+	 */
+	private static int countWords(TokenStream tokens, int from, int to) {
+		int words = 1;
+		int lastWord = 0;
+		boolean spaces = false;
+		for (int t = from; t < to; t++) {
+			if (tokens.getType(t) == TokenStream.SPACE) {
+				words++;
+				spaces = true;
+			} else
+				lastWord = words;
+		}
+		return spaces ? lastWord : 1;
+	}
+
+	/**
+	 * Applies the start or end of a span to a style. At the end of a span, the
+	 * value of its outer span applies, or the style of the field, if there is
+	 * none. Sizes are reduced in proportion to the points the text has been
+	 * shrunk.
+	 * 
+	 * @return Style after the token, the style itself for all other tokens
+	 */
+	private FieldStyle changeStyle(FieldStyle fieldStyle, TokenStream tokens, int token, int shrink) {
+		int type = tokens.getType(token);
+		if (type != TokenStream.SPAN_START && type != TokenStream.SPAN_END)
+			return fieldStyle;
+		int span = tokens.getValue(token);
+		TextAttribute attribute = tokens.getSpanAttribute(span);
+		if (type == TokenStream.SPAN_END)
+			span = tokens.getSpanOuter(span);
+		int value = span >= 0 ? tokens.getSpanValue(span) : 0;
+		switch (attribute) {
+		case BOLD:
+			return value != 0 ? fieldStyle.bold() : fieldStyle.noBold();
+		case ITALIC:
+			return value != 0 ? fieldStyle.italic() : fieldStyle.noItalic();
+		case SMALL_CAPS:
+			return fieldStyle.smallCaps(value != 0);
+		case SIZE:
+			if (span < 0)
+				return fieldStyle.resize(shrinkSize(this.fontSize, shrink));
+			return fieldStyle.resize(Math.max(1, shrinkSize(value, shrink)));
+		default:
+			return fieldStyle;
+		}
+	}
+
+	/**
+	 * Reduces a font size in proportion to the points the font size of the field
+	 * has been shrunk.
+	 */
+	private int shrinkSize(int size, int shrink) {
+		return this.fontSize > 0 ? size * (this.fontSize - shrink) / this.fontSize : size;
+	}
+
+	/**
+	 * Returns how much wider a space of text in the given style is than a space
+	 * of the plain text of the paragraph. Only the size makes a difference,
+	 * spaces of bold and italic text are as wide as plain ones.
+	 */
+	private static int spaceDelta(FieldStyle fieldStyle, FieldStyle plainStyle, Graphics2D g) {
+		if (fieldStyle.size == plainStyle.size)
+			return 0;
+		return fieldStyle.noBold().noItalic().getMetrics(g).charWidth(' ') - plainStyle.getMetrics(g).charWidth(' ');
+	}
+
+	/**
+	 * Returns the glyph of a symbol token, symbols are as high as the ascent of
+	 * the text. On a scaled graphics the glyph is rasterized at the device
+	 * resolution, its size is in device pixels.
+	 * 
+	 * @return Glyph of the symbol, or null, if the project has no such symbol and
+	 *         its name is drawn as text
+	 */
+	private static SymbolAtlas.Glyph getSymbol(TokenStream tokens, int token, FieldStyle fieldStyle, Graphics2D g) {
+		SymbolAtlas atlas = CardCreator.getSymbolAtlas();
+		if (atlas == null)
+			return null;
+		int ascent = fieldStyle.getMetrics(g).getAscent();
+		double scale = getScale(g);
+		if (scale != 1)
+			ascent = (int) Math.round(ascent * scale);
+		return atlas.getGlyph(tokens.getText(), tokens.getStart(token), tokens.getEnd(token), ascent);
+	}
+
+	/**
+	 * Draws a glyph returned by {@link #getSymbol(TokenStream, int, FieldStyle, Graphics2D)},
+	 * its pixels are mapped 1:1 to the pixels of the card like
+	 * {@link #drawScaledImage(Graphics2D, BufferedImage, int, int)}.
+	 */
+	private static void drawSymbol(Graphics2D g, SymbolAtlas.Glyph glyph, int x, int baseline) {
+		double scale = getScale(g);
+		if (scale == 1)
+			glyph.draw(g, x, baseline);
+		else
+			glyph.draw(g, x, baseline, unscale(glyph.getWidth(), scale), unscale(glyph.getHeight(), scale));
+	}
+
+	private static boolean isSpan(TokenStream tokens, int token, TextAttribute attribute) {
+		int type = tokens.getType(token);
+		return (type == TokenStream.SPAN_START || type == TokenStream.SPAN_END)
+				&& tokens.getSpanAttribute(tokens.getValue(token)) == attribute;
 	}
 
 	public void drawImage(Graphics2D gFront, Graphics2D gRear, String content) {
@@ -637,60 +1067,97 @@ public class Field {
 		if (ProjectManager.containsImageLink(content))
 			content = ProjectManager.processMediaEntry(content);
 		if (ProjectManager.isBase64Image(content.trim())) {
-			BufferedImage bimg = ProjectManager
-					.decodeImageFromBase64(content.trim().substring(6, content.trim().lastIndexOf("</imgb>")));
-			if (bimg != null) {
-				int height = (int) ((((float) rect.getWidth()) / bimg.getWidth()) * bimg.getHeight());
-				int width = (int) rect.getWidth();
-				if (height > rect.getHeight()) {
-					height = (int) rect.getHeight();
-					width = (int) ((((float) rect.getHeight()) / bimg.getHeight()) * bimg.getWidth());
-				}
-				Image img = bimg.getScaledInstance(width, height, BufferedImage.SCALE_SMOOTH);
-				g.drawImage(img, rect.x, rect.y, null);
-			}
+			BufferedImage img = getScaledImage(content.trim().substring(6, content.trim().lastIndexOf("</imgb>")), true, getScale(g));
+			if (img != null)
+				drawScaledImage(g, img, rect.x, rect.y);
 		}
 	}
 
 	/**
-	 * Splits a given text into seperate paragraphs. Puts "-$-" at the end of every
-	 * paragraph, so it can be identified as such.
+	 * Returns the scale of the graphics, cards rendered at another resolution
+	 * than the template are drawn through a scaled transform.
 	 * 
-	 * @param text
-	 *            Give text
-	 * @param splitter
-	 *            String to split the text by
-	 * @return Paragraphs with a \t if indented is set to true
-	 */
-	private List<String> splitIntoParagraphs(String text, String splitter) {
-		if (this.indented)
-			text = text.replaceAll(splitter, splitter + "\t");
-		List<String> paragraphsZ = Arrays.asList(text.split(splitter));
-		List<String> paragraphs = new LinkedList<>();
-		for (int i = 0; i < paragraphsZ.size(); i++) {
-			String p = paragraphsZ.get(i) + "-$-";
-			if (i == 0 && this.indented)
-				p = "\t" + p;
-			if (ProjectManager.containsBase64Image(p)) {
-				while (ProjectManager.containsBase64Image(p)) {
-					String prevP = p.substring(0, p.indexOf("<imgb>")) + "-$-";
-					String imgP = p.substring(p.indexOf("<imgb>"), p.indexOf("</imgb>") + 7);
-					p = "\t" + p.substring(p.indexOf("</imgb>") + 7);
-					if (!prevP.isEmpty() && !prevP.equals("-$-"))
-						paragraphs.add(prevP);
-					paragraphs.add(imgP);
-				}
-				if (!p.isEmpty())
-					paragraphs.add(p);
-			} else
-				paragraphs.add(p);
+	 * @return Device pixels per template pixel
+	 */
+	private static double getScale(Graphics2D g) {
+		double scale = g.getTransform().getScaleX();
+		return scale > 0 ? scale : 1;
+	}
+
+	/**
+	 * Converts a size in device pixels to template pixels.
+	 */
+	private static int unscale(int size, double scale) {
+		return scale == 1 ? size : (int) Math.round(size / scale);
+	}
+
+	/**
+	 * Draws an image scaled by {@link #getScaledImage(String, boolean, double)},
+	 * its pixels are mapped 1:1 to the pixels of the card.
+	 */
+	private static void drawScaledImage(Graphics2D g, BufferedImage img, int x, int y) {
+		double scale = getScale(g);
+		if (scale == 1)
+			g.drawImage(img, x, y, null);
+		else
+			g.drawImage(img, x, y, unscale(img.getWidth(), scale), unscale(img.getHeight(), scale), null);
+	}
+
+	/**
+	 * Returns a Base64 encoded image scaled to the width of this field. Scaled
+	 * images are kept in the render cache of the project, so every image is only
+	 * decoded and scaled once per field size, render scale and render quality.
+	 * 
+	 * @param base64
+	 *            Base64 encoded image
+	 * @param fitHeight
+	 *            Flag if the image should also be scaled down to the height of the
+	 *            field
+	 * @param scale
+	 *            Render scale, the image gets the resolution of the card instead of
+	 *            the template
+	 * @return Scaled image, or null, if the image cannot be decoded
+	 */
+	private BufferedImage getScaledImage(String base64, boolean fitHeight, double scale) {
+		RenderCache cache = CardCreator.getRenderCache();
+		RenderQuality quality = CardCreator.getRenderQuality();
+		String key = null;
+		if (cache != null) {
+			// Images scaled before the quality could be chosen are scaled like NORMAL ones
+			key = quality == RenderQuality.NORMAL && scale == 1 ? RenderCache.contentKey(base64, fitHeight, rect.width, rect.height)
+					: RenderCache.contentKey(base64, fitHeight, rect.width, rect.height, quality.name(), scale);
+			BufferedImage img = cache.getImage(MEDIA_CACHE, key);
+			if (img != null)
+				return img;
+		}
+		BufferedImage bimg = ProjectManager.decodeImageFromBase64(base64);
+		if (bimg == null)
+			return null;
+		int height = (int) ((((float) rect.getWidth()) / bimg.getWidth()) * bimg.getHeight());
+		int width = (int) rect.getWidth();
+		if (fitHeight && height > rect.getHeight()) {
+			height = (int) rect.getHeight();
+			width = (int) ((((float) rect.getHeight()) / bimg.getHeight()) * bimg.getWidth());
+		}
+		if (scale != 1) {
+			width = (int) Math.round(width * scale);
+			height = (int) Math.round(height * scale);
 		}
-		return paragraphs;
+		if (width <= 0 || height <= 0)
+			return null;
+		BufferedImage img = quality.scale(bimg, width, height);
+		if (cache != null)
+			cache.putImage(MEDIA_CACHE, key, img);
+		return img;
 	}
 
 	public Field clone() {
-		return new Field(name, new Dimension(rect.x, rect.y), new Dimension(rect.x + rect.width, rect.y + rect.height),
+		Field clone = new Field(name, new Dimension(rect.x, rect.y), new Dimension(rect.x + rect.width, rect.y + rect.height),
 				color, side, type, font, fontSize, linkedField, indented, javaScript);
+		clone.setResizeText(resizeText);
+		clone.setFitText(fitText);
+		clone.setVerticalAlignment(verticalAlignment);
+		return clone;
 	}
 	
 	public static enum CardSide {
@@ -712,7 +1179,7 @@ public class Field {
 	public static enum FieldType {
 
 		TEXT_LEFT("Text left-aligned"), TEXT_RIGHT("Text right-aligned"), TEXT_CENTER("Text centered"), TEXT_BLOCK(
-				"Text block"), IMAGE("Image");
+				"Text block"), TEXT_JUSTIFIED("Text justified"), IMAGE("Image");
 
 		private String display = null;
 
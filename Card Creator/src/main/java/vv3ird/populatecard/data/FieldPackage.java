@@ -30,19 +30,40 @@ import vv3ird.populatecard.data.Field.CardSide;
  * the images and fields for an project. Those can be exported seperatly through
  * the Field Mapping panel. Saving and loading creates or loads a file with the
  * json construct of this class, images are encoded to base64 before saving and
- * decoded after loading the json-file.
+ * decoded after loading the json-file.<br>
+ * The PNG data of loaded or saved images is kept, so saving again only encodes
+ * images that have been replaced in the meantime. Loaded images are decoded on
+ * first access.
  * 
  * @author VV3IRD
  *
  */
 public class FieldPackage {
 
+	/**
+	 * Template images of a FieldPackage with the name of their entry in a
+	 * project container.
+	 */
+	public static enum TemplateImage {
+		FRONT("images/front.png"), REAR("images/rear.png"), ALTERNATE_REAR("images/alternateRear.png");
+
+		private String entryName = null;
+
+		private TemplateImage(String entryName) {
+			this.entryName = entryName;
+		}
+
+		public String getEntryName() {
+			return entryName;
+		}
+	}
+
 	/**
 	 * Loads the Fieldpackage from a json-file.
 	 * 
 	 * @param path
 	 *            Path to the json-file
-	 * @return returns a {@link FieldPackage} with decoded images, if applicable.
+	 * @return returns a {@link FieldPackage}, images are decoded on first access.
 	 * @throws IOException
 	 *             Throws an IO Exception when an error occures while opening the
 	 *             given path
@@ -53,9 +74,6 @@ public class FieldPackage {
 		String fieldPackString = new String(fieldPackBytes, StandardCharsets.UTF_8);
 		Gson gson = new Gson();
 		fieldPack = gson.fromJson(fieldPackString, FieldPackage.class);
-		if (fieldPack.getImageBase64() != null) {
-			fieldPack.decodeImages();
-		}
 		return fieldPack;
 	}
 
@@ -110,6 +128,24 @@ public class FieldPackage {
 	 */
 	private String alternateRearBase64 = null;
 
+	/**
+	 * PNG data of the front image, null if the image has been changed since it
+	 * was last loaded or encoded
+	 */
+	private transient byte[] frontPng = null;
+
+	/**
+	 * PNG data of the rear image, null if the image has been changed since it
+	 * was last loaded or encoded
+	 */
+	private transient byte[] rearPng = null;
+
+	/**
+	 * PNG data of the alternate rear image, null if the image has been changed
+	 * since it was last loaded or encoded
+	 */
+	private transient byte[] alternateRearPng = null;
+
 	/**
 	 * Creates an empty FieldPackage
 	 */
@@ -174,30 +210,12 @@ public class FieldPackage {
 	}
 
 	/**
-	 * Decodes the images in base64 format to Images
+	 * Decodes the images in base64 format to Images. Images are also decoded on
+	 * first access, this only has to be called to decode them in advance.
 	 */
-	public void decodeImages() {
-		try {
-			// Front
-			if (this.frontBase64 != null) {
-				byte[] bFrontImg = Base64.getDecoder().decode(this.frontBase64);
-				ByteArrayInputStream isFront = new ByteArrayInputStream(bFrontImg);
-				this.front = ImageIO.read(isFront);
-			}
-			// Rear
-			if (this.rearBase64 != null) {
-				byte[] bRearImg = Base64.getDecoder().decode(this.rearBase64);
-				ByteArrayInputStream isRear = new ByteArrayInputStream(bRearImg);
-				this.rear = ImageIO.read(isRear);
-			}
-			// Alternate Rear
-			if (this.alternateRearBase64 != null) {
-				byte[] bRearImg = Base64.getDecoder().decode(this.alternateRearBase64);
-				ByteArrayInputStream isRear = new ByteArrayInputStream(bRearImg);
-				this.alternateRear = ImageIO.read(isRear);
-			}
-		} catch (final IOException ioe) {
-			throw new UncheckedIOException(ioe);
+	public synchronized void decodeImages() {
+		for (TemplateImage image : TemplateImage.values()) {
+			getImage(image);
 		}
 	}
 
@@ -226,37 +244,198 @@ public class FieldPackage {
 	}
 
 	/**
-	 * Encodes all images to bas64 for saving as json-string.
+	 * Encodes all images to bas64 for saving as json-string. The Base64 data of
+	 * images that have not been changed since the last save is kept.
 	 */
-	public void encodeImages() {
-		try {
-			if (this.front != null) {
-				final ByteArrayOutputStream osFront = new ByteArrayOutputStream();
-				ImageIO.write(this.front, "PNG", osFront);
-				this.frontBase64 = Base64.getEncoder().encodeToString(osFront.toByteArray());
-			}
-			if (this.rear != null) {
-				final ByteArrayOutputStream osRear = new ByteArrayOutputStream();
-				ImageIO.write(this.rear, "PNG", osRear);
-				this.rearBase64 = Base64.getEncoder().encodeToString(osRear.toByteArray());
-			}
-			if (this.alternateRear != null) {
-				final ByteArrayOutputStream osAlternateRear = new ByteArrayOutputStream();
-				ImageIO.write(this.alternateRear, "PNG", osAlternateRear);
-				this.alternateRearBase64 = Base64.getEncoder().encodeToString(osAlternateRear.toByteArray());
+	public synchronized void encodeImages() {
+		for (TemplateImage image : TemplateImage.values()) {
+			if (getBase64(image) == null) {
+				byte[] png = encodeImage(image);
+				if (png != null)
+					setBase64(image, Base64.getEncoder().encodeToString(png));
 			}
+		}
+	}
+
+	/**
+	 * Encodes a template image to PNG. If the image has not been changed since
+	 * it was loaded or last encoded, the existing PNG data is returned without
+	 * decoding the image.
+	 * 
+	 * @param image Template image to be encoded
+	 * @return PNG data of the image, or null, if the image is not set
+	 */
+	public synchronized byte[] encodeImage(TemplateImage image) {
+		byte[] png = getPng(image);
+		if (png != null)
+			return png;
+		if (getBase64(image) != null) {
+			png = Base64.getDecoder().decode(getBase64(image));
+			setPng(image, png);
+			return png;
+		}
+		BufferedImage img = getDecodedImage(image);
+		if (img == null)
+			return null;
+		try {
+			final ByteArrayOutputStream os = new ByteArrayOutputStream();
+			ImageIO.write(img, "PNG", os);
+			png = os.toByteArray();
+			setPng(image, png);
+			return png;
 		} catch (final IOException ioe) {
 			throw new UncheckedIOException(ioe);
 		}
 	}
 
+	/**
+	 * Returns if a template image has been changed since it was loaded or last
+	 * encoded.
+	 * 
+	 * @param image Template image
+	 * @return true if the image has to be encoded again when saving
+	 */
+	public synchronized boolean isDirty(TemplateImage image) {
+		return getDecodedImage(image) != null && getPng(image) == null && getBase64(image) == null;
+	}
+
+	/**
+	 * Returns if a template image is set, without decoding it.
+	 * 
+	 * @param image Template image
+	 * @return true if the image is set
+	 */
+	public synchronized boolean hasImage(TemplateImage image) {
+		return getDecodedImage(image) != null || getPng(image) != null || getBase64(image) != null;
+	}
+
+	private byte[] getPng(TemplateImage image) {
+		switch (image) {
+		case FRONT:
+			return frontPng;
+		case REAR:
+			return rearPng;
+		default:
+			return alternateRearPng;
+		}
+	}
+
+	private void setPng(TemplateImage image, byte[] png) {
+		switch (image) {
+		case FRONT:
+			this.frontPng = png;
+			break;
+		case REAR:
+			this.rearPng = png;
+			break;
+		case ALTERNATE_REAR:
+			this.alternateRearPng = png;
+			break;
+		}
+	}
+
+	private String getBase64(TemplateImage image) {
+		switch (image) {
+		case FRONT:
+			return frontBase64;
+		case REAR:
+			return rearBase64;
+		default:
+			return alternateRearBase64;
+		}
+	}
+
+	private void setBase64(TemplateImage image, String base64) {
+		switch (image) {
+		case FRONT:
+			this.frontBase64 = base64;
+			break;
+		case REAR:
+			this.rearBase64 = base64;
+			break;
+		case ALTERNATE_REAR:
+			this.alternateRearBase64 = base64;
+			break;
+		}
+	}
+
+	/**
+	 * Returns the image if it has already been decoded.
+	 */
+	private BufferedImage getDecodedImage(TemplateImage image) {
+		switch (image) {
+		case FRONT:
+			return front;
+		case REAR:
+			return rear;
+		default:
+			return alternateRear;
+		}
+	}
+
+	/**
+	 * Sets the PNG data of a template image, it is decoded on first access.
+	 * Other than {@link #setFrontImage(BufferedImage, boolean)} no fields are
+	 * removed, this is used when loading a project.
+	 * 
+	 * @param image Template image to be set
+	 * @param png PNG data of the image
+	 */
+	public synchronized void setImagePng(TemplateImage image, byte[] png) {
+		switch (image) {
+		case FRONT:
+			this.front = null;
+			break;
+		case REAR:
+			this.rear = null;
+			break;
+		case ALTERNATE_REAR:
+			this.alternateRear = null;
+			break;
+		}
+		setBase64(image, null);
+		setPng(image, png);
+	}
+
+	/**
+	 * Returns the given template image. The image is decoded from its PNG or
+	 * Base64 data on first access.
+	 * 
+	 * @param image Template image
+	 * @return The image, or null, if no image exists
+	 */
+	public synchronized BufferedImage getImage(TemplateImage image) {
+		BufferedImage img = getDecodedImage(image);
+		if (img != null || (getPng(image) == null && getBase64(image) == null))
+			return img;
+		try {
+			img = ImageIO.read(new ByteArrayInputStream(encodeImage(image)));
+		} catch (final IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		if (img == null)
+			throw new UncheckedIOException(new IOException("Template image " + image.getEntryName() + " has an unknown format"));
+		switch (image) {
+		case FRONT:
+			this.front = img;
+			break;
+		case REAR:
+			this.rear = img;
+			break;
+		case ALTERNATE_REAR:
+			this.alternateRear = img;
+			break;
+		}
+		return img;
+	}
+
 	/**
 	 * Returns the alternate rear image
 	 * 
 	 * @return Alternate rear image, or null, if no image exists
 	 */
 	public BufferedImage getAlternateRearImage() {
-		return alternateRear;
+		return getImage(TemplateImage.ALTERNATE_REAR);
 	}
 
 	/**
@@ -300,7 +479,7 @@ public class FieldPackage {
 	 * @return Front image, or null, if no image exists
 	 */
 	public BufferedImage getFrontImage() {
-		return front;
+		return getImage(TemplateImage.FRONT);
 	}
 	/**
 	 * Returns a copy of the front image.
@@ -308,7 +487,7 @@ public class FieldPackage {
 	 * @return Copy of front image, or null, if no image exists
 	 */
 	public BufferedImage getFrontImageCopy() {
-		return this.getImageCopy(this.front);
+		return this.getImageCopy(getFrontImage());
 	}
 
 	/**
@@ -327,8 +506,12 @@ public class FieldPackage {
 	 * @return Copy of the given image, or null if given image was also null
 	 */
 	public BufferedImage getImageCopy(BufferedImage img) {
+		return img != null ? getImageCopy(img, img.getType()) : null;
+	}
+
+	private BufferedImage getImageCopy(BufferedImage img, int type) {
 		if (img != null) {
-			BufferedImage bImg = new BufferedImage(img.getWidth(), img.getHeight(), img.getType());
+			BufferedImage bImg = new BufferedImage(img.getWidth(), img.getHeight(), type);
 			Graphics2D g = bImg.createGraphics();
 			g.setColor(Color.WHITE);
 			g.fillRect(0, 0, img.getWidth(), img.getHeight());
@@ -339,6 +522,27 @@ public class FieldPackage {
 		return null;
 	}
 
+	/**
+	 * Resamples a template to the given render scale. Templates are resampled
+	 * once per job, the cards are drawn on copies of the result.
+	 * 
+	 * @param img		Template image
+	 * @param scale		Render scale
+	 * @param quality	Quality the template is resampled with
+	 * @return Resampled image of the same type, the image itself if the scale
+	 *         is 1, or null if the given image was also null
+	 */
+	public BufferedImage getScaledImage(BufferedImage img, double scale, RenderQuality quality) {
+		if (img == null || scale == 1)
+			return img;
+		int width = Math.max(1, (int) Math.round(img.getWidth() * scale));
+		int height = Math.max(1, (int) Math.round(img.getHeight() * scale));
+		BufferedImage scaled = quality.scale(img, width, height);
+		if (img.getType() == scaled.getType() || img.getType() == BufferedImage.TYPE_CUSTOM)
+			return scaled;
+		return getImageCopy(scaled, img.getType());
+	}
+
 	/**
 	 * Returns a List with the Fields for the rear side of the card
 	 * @return List with rear Fields
@@ -353,7 +557,7 @@ public class FieldPackage {
 	 * @return Rear image, or null, if no image exists
 	 */
 	public BufferedImage getRearImage() {
-		return rear;
+		return getImage(TemplateImage.REAR);
 	}
 
 	/**
@@ -362,7 +566,7 @@ public class FieldPackage {
 	 * @return Copy of rear image, or null, if no image exists
 	 */
 	public BufferedImage getRearImageCopy() {
-		return this.getImageCopy(this.rear);
+		return this.getImageCopy(getRearImage());
 	}
 	
 	/**
@@ -381,9 +585,10 @@ public class FieldPackage {
 	 * 
 	 * @param image Alternate rear image.
 	 */
-	public void setAlternateRearImage(BufferedImage image) {
+	public synchronized void setAlternateRearImage(BufferedImage image) {
 		this.alternateRear = image;
 		this.alternateRearBase64 = null;
+		this.alternateRearPng = null;
 	}
 	
 	/**
@@ -393,9 +598,10 @@ public class FieldPackage {
 	 * @param deleteFrontFields Flag if all Fields for the front image should be removed (true) or
 	 *            not (false).
 	 */
-	public void setFrontImage(BufferedImage image, boolean deleteFrontFields) {
+	public synchronized void setFrontImage(BufferedImage image, boolean deleteFrontFields) {
 		this.front = image;
 		this.frontBase64 = null;
+		this.frontPng = null;
 		if(deleteFrontFields) 
 			deleteFields(CardSide.FRONT);
 	}
@@ -404,8 +610,9 @@ public class FieldPackage {
 	 * Sets the base64 encoded front image.
 	 * @param imageBase64 Front image encoded in base64
 	 */
-	public void setImageBase64(String imageBase64) {
+	public synchronized void setImageBase64(String imageBase64) {
 		this.frontBase64 = imageBase64;
+		this.frontPng = null;
 	}
 	
 	/**
@@ -415,9 +622,10 @@ public class FieldPackage {
 	 * @param deleterearFields Flag if all Fields for the reat image should be removed (true) or
 	 *            not (false).
 	 */
-	public void setRearImage(BufferedImage image, boolean deleteRearFields) {
+	public synchronized void setRearImage(BufferedImage image, boolean deleteRearFields) {
 		this.rear = image;
 		this.rearBase64 = null;
+		this.rearPng = null;
 		if(deleteRearFields) 
 			deleteFields(CardSide.REAR);
 	}
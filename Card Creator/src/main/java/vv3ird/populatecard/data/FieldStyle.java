@@ -3,116 +3,271 @@ package vv3ird.populatecard.data;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import vv3ird.populatecard.CardCreator;
 
+/**
+ * Font style used to draw the text of a field. Styles are immutable and
+ * interned by their base font, size, bold, italic and small caps flag, so every style
+ * exists only once and can be shared by all cards and threads. The derived
+ * font of a style is created once, the styles reached by the style changes
+ * and the font metrics are cached, so changing the style while drawing does
+ * not allocate anything.
+ *
+ * @author VV3IRD
+ *
+ */
 public class FieldStyle {
-	public final Font font;	
+
+	/**
+	 * All styles created so far
+	 */
+	private static final Map<Key, FieldStyle> styles = new ConcurrentHashMap<>();
+
+	public final Font font;
 	public final boolean italic;
 	public final boolean bold;
 	public final int size;
-	private FieldStyle parent = null;
-	private boolean notChanged = false;
-	
-	public FieldStyle(Field field) {
-		this(CardCreator.getFont(field.getFont()), field.getFontSize(), field.isItalic(), field.isBold(), null);
-	}
-	
-	public FieldStyle(Font font, int size, boolean italic, boolean bold, FieldStyle parent) {
-		super();
+	public final boolean smallCaps;
+
+	/**
+	 * Font the style is derived from
+	 */
+	private final Font base;
+
+	private volatile FieldStyle bolder = null;
+
+	private volatile FieldStyle nonBold = null;
+
+	private volatile FieldStyle italics = null;
+
+	private volatile FieldStyle nonItalic = null;
+
+	private volatile FieldStyle smaller = null;
+
+	private volatile FieldStyle capitals = null;
+
+	private volatile Metrics metrics = null;
+
+	private FieldStyle(Font base, int size, boolean italic, boolean bold, boolean smallCaps) {
+		this.base = base;
 		this.italic = italic;
 		this.bold = bold;
 		this.size = size;
-		this.parent = parent;
-		this.font = parent != null && parent.bold == bold && parent.italic == italic && parent.size == size ?
-				font : font.deriveFont((italic ? Font.ITALIC : Font.PLAIN) | (bold ? Font.BOLD : Font.PLAIN), size);
+		this.smallCaps = smallCaps;
+		this.font = base.deriveFont((italic ? Font.ITALIC : Font.PLAIN) | (bold ? Font.BOLD : Font.PLAIN), size);
 	}
-	
-	public Font getFont() {
-		return font;
-	}
-	
-	public FieldStyle bold() {
-		return new FieldStyle(font, size, italic, true, this);
-	}
-	
-	public FieldStyle noBold() {
-		return new FieldStyle(font, size, italic, false, this);
+
+	/**
+	 * Returns the style of a field.
+	 *
+	 * @param field	Field
+	 * @return Style with the font, size and flags of the field
+	 */
+	public static FieldStyle of(Field field) {
+		return of(CardCreator.getFont(field.getFont()), field.getFontSize(), field.isItalic(), field.isBold());
 	}
-	
-	public boolean hasBoldChanged() {
-		return this.parent != null && this.parent.bold != this.bold && !notChanged;
+
+	/**
+	 * Returns the style for the given attributes. The style is only created, if
+	 * it does not exist yet.
+	 *
+	 * @param base		Font the style is derived from
+	 * @param size		Font size
+	 * @param italic	Italic flag
+	 * @param bold		Bold flag
+	 * @return Shared style
+	 */
+	public static FieldStyle of(Font base, int size, boolean italic, boolean bold) {
+		return of(base, size, italic, bold, false);
 	}
 
-	public boolean hasChangedToBold() {
-		return this.parent != null && !this.parent.bold && this.bold && !notChanged;
+	private static FieldStyle of(Font base, int size, boolean italic, boolean bold, boolean smallCaps) {
+		Key key = new Key(base, size, italic, bold, smallCaps);
+		FieldStyle style = styles.get(key);
+		if (style == null) {
+			FieldStyle created = new FieldStyle(base, size, italic, bold, smallCaps);
+			style = styles.putIfAbsent(key, created);
+			if (style == null)
+				style = created;
+		}
+		return style;
 	}
 
-	public boolean hasChangedFromBold() {
-		return this.parent != null && this.parent.bold && !this.bold && !notChanged;
+	public Font getFont() {
+		return font;
 	}
-	
-	public FieldStyle italic() {
-		return new FieldStyle(font, size, true, bold, this);
+
+	/**
+	 * Checks if this is the style of the given attributes, without looking it
+	 * up.
+	 *
+	 * @param base		Font the style is derived from
+	 * @param size		Font size
+	 * @param italic	Italic flag
+	 * @param bold		Bold flag
+	 * @return true, if {@link #of(Font, int, boolean, boolean)} returns this style
+	 */
+	public boolean isStyleOf(Font base, int size, boolean italic, boolean bold) {
+		return this.base == base && this.size == size && this.italic == italic && this.bold == bold && !smallCaps;
 	}
-	
-	public boolean hasItalicChanged() {
-		return this.parent != null && this.parent.italic != this.italic && !notChanged;
+
+	public FieldStyle bold() {
+		FieldStyle s = bolder;
+		if (s == null)
+			bolder = s = bold ? this : of(base, size, italic, true, smallCaps);
+		return s;
 	}
 
-	public boolean hasChangedToItalic() {
-		return this.parent != null && !this.parent.italic && this.italic && !notChanged;
+	public FieldStyle noBold() {
+		FieldStyle s = nonBold;
+		if (s == null)
+			nonBold = s = !bold ? this : of(base, size, italic, false, smallCaps);
+		return s;
 	}
 
-	public boolean hasChangedFromItalic() {
-		return this.parent != null && this.parent.italic && !this.italic && !notChanged;
+	public FieldStyle italic() {
+		FieldStyle s = italics;
+		if (s == null)
+			italics = s = italic ? this : of(base, size, true, bold, smallCaps);
+		return s;
 	}
-	
+
 	public FieldStyle noItalic() {
-		return new FieldStyle(font, size, false, bold, this);
+		FieldStyle s = nonItalic;
+		if (s == null)
+			nonItalic = s = !italic ? this : of(base, size, false, bold, smallCaps);
+		return s;
 	}
-	
+
 	public FieldStyle smaller() {
-		return new FieldStyle(font, size-1, italic, bold, this);
+		FieldStyle s = smaller;
+		if (s == null)
+			smaller = s = of(base, size - 1, italic, bold, smallCaps);
+		return s;
 	}
-	
+
 	public FieldStyle bigger() {
-		return new FieldStyle(font, size+1, italic, bold, this);
+		return of(base, size + 1, italic, bold, smallCaps);
 	}
-	
-	public boolean hasSizeChanged() {
-		return this.parent != null && this.parent.size != this.size && !notChanged;
-	}
-	
+
 	public FieldStyle resize(int size) {
-		return new FieldStyle(font, size, italic, bold, this);
-	}
-	
-	public FieldStyle revert() {
-		return parent != null ? parent.notChanged() : this;
-	}
-	
-	public FieldStyle clone() {
-		FieldStyle f = new FieldStyle(font, size, italic, bold, parent != null ? parent.clone() : null);
-		f.g = g;
-		f.fm = fm;
-		return f;
-	}
-	
-	private transient Graphics2D g = null;
-	
-	private transient FontMetrics fm = null; 
-	
+		return size == this.size ? this : of(base, size, italic, bold, smallCaps);
+	}
+
+	public FieldStyle smallCaps(boolean smallCaps) {
+		return smallCaps == this.smallCaps ? this : of(base, size, italic, bold, smallCaps);
+	}
+
+	/**
+	 * Returns the style lower case letters are drawn with, if small caps are
+	 * used. They are drawn as capitals, 80% of the size of the style.
+	 *
+	 * @return Style of the small capitals
+	 */
+	public FieldStyle getCapitals() {
+		FieldStyle s = capitals;
+		if (s == null)
+			capitals = s = of(base, Math.max(1, Math.round(size * 0.8f)), italic, bold, false);
+		return s;
+	}
+
+	/**
+	 * Returns the metrics of the style's font. The metrics are cached for the
+	 * last font render context they were requested for.<br>
+	 * If the graphics is scaled to draw at another render scale, the metrics
+	 * are still measured in unscaled pixels. Glyph advances rounded at
+	 * another scale would break the text into other lines.
+	 *
+	 * @param g	Graphics the text is drawn with
+	 * @return Metrics of the font
+	 */
 	public FontMetrics getMetrics(Graphics2D g) {
-		if (this.g != g) {
-			this.g = g;
-			this.fm = g.getFontMetrics(this.getFont());
+		FontRenderContext frc = g.getFontRenderContext();
+		Metrics m = metrics;
+		if (!frc.isTransformed()) {
+			if (m == null || !m.frc.equals(frc)) {
+				m = new Metrics(frc, g.getFontMetrics(this.getFont()));
+				metrics = m;
+			}
+		} else if (m == null || m.frc.isTransformed() || !m.frc.getAntiAliasingHint().equals(frc.getAntiAliasingHint())
+				|| !m.frc.getFractionalMetricsHint().equals(frc.getFractionalMetricsHint())) {
+			m = new Metrics(new FontRenderContext(null, frc.getAntiAliasingHint(), frc.getFractionalMetricsHint()),
+					getUnscaledMetrics(frc));
+			metrics = m;
 		}
+		return m.fm;
+	}
+
+	/**
+	 * Measures the font with the hints of a render context, but without its
+	 * transform.
+	 */
+	private FontMetrics getUnscaledMetrics(FontRenderContext frc) {
+		Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, frc.getAntiAliasingHint());
+		g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, frc.getFractionalMetricsHint());
+		FontMetrics fm = g.getFontMetrics(this.getFont());
+		g.dispose();
 		return fm;
 	}
 
-	public FieldStyle notChanged() {
-		this.notChanged = true;
-		return this;
+	/**
+	 * Font metrics together with the render context they are valid for
+	 */
+	private static class Metrics {
+
+		private final FontRenderContext frc;
+
+		private final FontMetrics fm;
+
+		private Metrics(FontRenderContext frc, FontMetrics fm) {
+			this.frc = frc;
+			this.fm = fm;
+		}
+	}
+
+	/**
+	 * Key of the interned styles. Base fonts are compared by identity, as fonts of
+	 * different files with the same name are equal.
+	 */
+	private static class Key {
+
+		private final Font base;
+
+		private final int size;
+
+		private final boolean italic;
+
+		private final boolean bold;
+
+		private final boolean smallCaps;
+
+		private Key(Font base, int size, boolean italic, boolean bold, boolean smallCaps) {
+			this.base = base;
+			this.size = size;
+			this.italic = italic;
+			this.bold = bold;
+			this.smallCaps = smallCaps;
+		}
+
+		@Override
+		public int hashCode() {
+			return (System.identityHashCode(base) * 31 + size) * 8 + (italic ? 4 : 0) + (bold ? 2 : 0) + (smallCaps ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return base == other.base && size == other.size && italic == other.italic && bold == other.bold
+					&& smallCaps == other.smallCaps;
+		}
 	}
 }
@@ -0,0 +1,174 @@
+package vv3ird.populatecard.data;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * Working memory of the text layout of one thread. Words, lines and layouts are
+ * kept in arrays that only grow, so once the longest paragraph has been laid
+ * out, laying out further cards does not allocate anything.<br>
+ * The scratch is only valid until the next layout of the same thread.
+ *
+ * @author VV3IRD
+ *
+ */
+final class LayoutScratch {
+
+	private static final ThreadLocal<LayoutScratch> scratch = ThreadLocal.withInitial(LayoutScratch::new);
+
+	/**
+	 * Words of the paragraph broken into lines, as ranges of tokens
+	 */
+	int[] wordStart = new int[64];
+
+	int[] wordEnd = new int[64];
+
+	int[] wordWidth = new int[64];
+
+	/**
+	 * Lines of the paragraph, as ranges of tokens
+	 */
+	int[] lineFrom = new int[16];
+
+	int[] lineTo = new int[16];
+
+	int lines = 0;
+
+	/**
+	 * Sums of the word widths, demerits and breaks of the optimal line breaking
+	 */
+	long[] prefix = new long[65];
+
+	double[] demerits = new double[65];
+
+	int[] previous = new int[65];
+
+	/**
+	 * Layouts of a field, the search for the size text fits with needs three at
+	 * once
+	 */
+	final TextLayout[] layouts = { new TextLayout(), new TextLayout(), new TextLayout() };
+
+	/**
+	 * Fields filled by the current chain of linked fields
+	 */
+	Field[] filled = new Field[8];
+
+	int filledCount = 0;
+
+	/**
+	 * Single character drawn as small capital
+	 */
+	final char[] capital = new char[1];
+
+	/**
+	 * Colors of the color spans, by a hash of their value
+	 */
+	private final Color[] colors = new Color[16];
+
+	private LayoutScratch() {
+	}
+
+	/**
+	 * Returns the scratch of the current thread.
+	 *
+	 * @return Scratch, only to be used by the current thread
+	 */
+	static LayoutScratch get() {
+		return scratch.get();
+	}
+
+	/**
+	 * Makes room for the words of a paragraph, the widths are reset to 0.
+	 *
+	 * @param count	Number of words
+	 */
+	void clearWords(int count) {
+		if (wordStart.length < count) {
+			int capacity = Math.max(count, wordStart.length * 2);
+			wordStart = new int[capacity];
+			wordEnd = new int[capacity];
+			wordWidth = new int[capacity];
+		} else
+			Arrays.fill(wordWidth, 0, count, 0);
+	}
+
+	/**
+	 * Makes room for the optimal line breaking of a paragraph.
+	 *
+	 * @param count	Number of words
+	 */
+	void clearBreaks(int count) {
+		if (prefix.length <= count) {
+			int capacity = Math.max(count + 1, prefix.length * 2);
+			prefix = new long[capacity];
+			demerits = new double[capacity];
+			previous = new int[capacity];
+		}
+	}
+
+	void addLine(int from, int to) {
+		if (lines == lineFrom.length) {
+			lineFrom = Arrays.copyOf(lineFrom, lines * 2);
+			lineTo = Arrays.copyOf(lineTo, lines * 2);
+		}
+		lineFrom[lines] = from;
+		lineTo[lines] = to;
+		lines++;
+	}
+
+	/**
+	 * Reverses the order of the lines, for lines collected from the end of the
+	 * paragraph.
+	 */
+	void reverseLines() {
+		for (int i = 0, j = lines - 1; i < j; i++, j--) {
+			int from = lineFrom[i];
+			int to = lineTo[i];
+			lineFrom[i] = lineFrom[j];
+			lineTo[i] = lineTo[j];
+			lineFrom[j] = from;
+			lineTo[j] = to;
+		}
+	}
+
+	/**
+	 * Adds a field to the fields of the current chain.
+	 *
+	 * @param field	Field of the chain
+	 * @return false, if the field has been filled already
+	 */
+	boolean fill(Field field) {
+		for (int i = 0; i < filledCount; i++) {
+			if (filled[i] == field)
+				return false;
+		}
+		if (filledCount == filled.length)
+			filled = Arrays.copyOf(filled, filledCount * 2);
+		filled[filledCount++] = field;
+		return true;
+	}
+
+	/**
+	 * Forgets the fields of the chain, so they can be collected.
+	 */
+	void clearFilled() {
+		Arrays.fill(filled, 0, filledCount, null);
+		filledCount = 0;
+	}
+
+	/**
+	 * Returns the color of a color span, colors are only created once.
+	 *
+	 * @param rgb	Value of the span
+	 * @return Opaque color
+	 */
+	Color getColor(int rgb) {
+		int argb = 0xff000000 | rgb;
+		int slot = (argb ^ (argb >>> 8) ^ (argb >>> 16)) & (colors.length - 1);
+		Color color = colors[slot];
+		if (color == null || color.getRGB() != argb)
+			colors[slot] = color = new Color(argb);
+		return color;
+	}
+}
@@ -1,5 +1,29 @@
 package vv3ird.populatecard.data;
 
 public enum ParallelProcessing {
-	SINGLE_THREAD, CPU_MINUS_ONE, CUSTOM
+	SINGLE_THREAD, CPU_MINUS_ONE, CUSTOM, VIRTUAL_THREAD_IO, ADAPTIVE;
+	
+	/**
+	 * Returns the number of threads used for CPU bound work in this mode.
+	 * {@link #VIRTUAL_THREAD_IO} uses one thread per core, blocking I/O is moved
+	 * to virtual threads. {@link #ADAPTIVE} starts with the thread count learned
+	 * by the last run, or half of the cores if nothing has been learned yet.
+	 * @param customThreads	Number of threads used in {@link #CUSTOM} mode, learned thread count in {@link #ADAPTIVE} mode
+	 * @return	Number of threads, at least 1
+	 */
+	public int getThreads(int customThreads) {
+		int cpus = Runtime.getRuntime().availableProcessors();
+		switch (this) {
+		case SINGLE_THREAD:
+			return 1;
+		case CPU_MINUS_ONE:
+			return cpus > 1 ? cpus - 1 : 1;
+		case VIRTUAL_THREAD_IO:
+			return cpus;
+		case ADAPTIVE:
+			return customThreads > 0 ? customThreads : Math.max(1, cpus / 2);
+		default:
+			return customThreads > 0 ? customThreads : 1;
+		}
+	}
 }
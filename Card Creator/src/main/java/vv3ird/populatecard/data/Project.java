@@ -1,41 +1,65 @@
 package vv3ird.populatecard.data;
 
 import java.awt.Font;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
-import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.csv.CSVFormat;
 
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
+import vv3ird.populatecard.control.FontRegistry;
 import vv3ird.populatecard.control.ProjectManager;
+import vv3ird.populatecard.data.FieldPackage.TemplateImage;
+import vv3ird.populatecard.data.text.SymbolAtlas;
+import vv3ird.populatecard.io.RenderCache;
 
 /**
  * Project that contains all necessary information to create cards<br>
  * Project structure (As created by {@link ProjectManager}:<br><br>
- * <code>projects/{@link #name}/{@link #name}.cmp<br>
+ * <code>projects/{@link #name}/{@link #name}.cmpc<br>
  * projects/{@link #name}/csv/<br>
  * projects/{@link #name}/fonts/<br></code>
  * @author VV3IRD
@@ -44,87 +68,303 @@ import vv3ird.populatecard.control.ProjectManager;
 public class Project {
 	
 	/**
-	 * Loads a project from a given path
+	 * File extension of the project container. The container is a zip file with
+	 * the project as json entry and the template images as uncompressed PNG
+	 * entries. The older formats <code>.cmp</code> (json) and <code>.cmpz</code>
+	 * (gzipped json) contain the images Base64 encoded in the json and are only
+	 * kept for loading existing projects.
+	 */
+	public static final String CONTAINER_EXTENSION = ".cmpc";
+	
+	/**
+	 * Name of the json entry in the project container
+	 */
+	private static final String CONTAINER_PROJECT_ENTRY = "project.json";
+	
+	/**
+	 * Buffer size used for streaming the json from and to disk
+	 */
+	private static final int JSON_BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * Keeps the Base64 copies of the template images out of the container json,
+	 * the images are stored as separate entries.
+	 */
+	private static final ExclusionStrategy SKIP_BASE64_IMAGES = new ExclusionStrategy() {
+		@Override
+		public boolean shouldSkipField(FieldAttributes f) {
+			return f.getDeclaringClass() == FieldPackage.class && f.getName().endsWith("Base64");
+		}
+
+		@Override
+		public boolean shouldSkipClass(Class<?> clazz) {
+			return false;
+		}
+	};
+	
+	/**
+	 * Loads a project from a given path. The template images are decoded on first access.
 	 * @param path	Project file to be loaded
 	 * @return The project object
 	 * @throws IOException	Whenever the project file cannot be loaded from the given file.
 	 */
 	public static Project load(Path path) throws IOException {
 		Project project = null;
-		if (path.toString().endsWith(".cmpz"))
-			project = loadCompressed(path);
-		else {
-			byte[] projectBytes = Files.readAllBytes(path);
-			String projectString = new String(projectBytes, "UTF-8");
-			Gson gson = new Gson();
-			project = gson.fromJson(projectString, Project.class);
-		}
-		if (project.fp != null)
-			project.fp.decodeImages();
+		if (path.toString().endsWith(CONTAINER_EXTENSION))
+			project = loadContainer(path);
+		else
+			project = loadJson(path);
+		if (project == null)
+			throw new IOException("Project file " + path.getFileName() + " is empty");
 		project.init();
 		project.setProjectRoot(path.getParent());
 		return project;
 	}
 	
-	private static Project loadCompressed(Path path) throws IOException {
-		Project p = null;
-		Gson g = new Gson();
+	/**
+	 * Loads a project from a json file (<code>.cmp</code>) or a gzipped json file
+	 * (<code>.cmpz</code>). The json is parsed while it is read from disk.
+	 */
+	private static Project loadJson(Path path) throws IOException {
 		InputStream input = Files.newInputStream(path);
-		try {
-			Reader reader = new InputStreamReader(new GZIPInputStream(input), StandardCharsets.UTF_8);
-			try {
-				p = g.fromJson(reader, Project.class);
-			} finally {
-				reader.close();
+		if (path.toString().endsWith(".cmpz"))
+			input = new GZIPInputStream(input, JSON_BUFFER_SIZE);
+		try (Reader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), JSON_BUFFER_SIZE)) {
+			return readJson(reader);
+		}
+	}
+
+	private static Project readJson(Reader reader) throws IOException {
+		JsonReader json = new JsonReader(reader);
+		return new Gson().fromJson(json, Project.class);
+	}
+
+	/**
+	 * Loads a project container. The entries are read as a stream, so the
+	 * container can also be read from a zip file system.
+	 */
+	private static Project loadContainer(Path path) throws IOException {
+		Project p = null;
+		Map<TemplateImage, byte[]> images = new HashMap<>();
+		try (ZipInputStream zin = new ZipInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			ZipEntry entry = null;
+			while ((entry = zin.getNextEntry()) != null) {
+				if (CONTAINER_PROJECT_ENTRY.equals(entry.getName())) {
+					// The reader is not closed, it would close the container
+					p = readJson(new BufferedReader(new InputStreamReader(zin, StandardCharsets.UTF_8), JSON_BUFFER_SIZE));
+				} else {
+					for (TemplateImage image : TemplateImage.values()) {
+						if (image.getEntryName().equals(entry.getName()))
+							images.put(image, readEntry(zin));
+					}
+				}
 			}
-		} finally {
-			input.close();
+		}
+		if (p == null)
+			throw new IOException("Project container " + path.getFileName() + " contains no " + CONTAINER_PROJECT_ENTRY);
+		if (p.fp == null && !images.isEmpty())
+			p.fp = new FieldPackage();
+		for (Map.Entry<TemplateImage, byte[]> image : images.entrySet()) {
+			p.fp.setImagePng(image.getKey(), image.getValue());
 		}
 		return p;
 	}
 
 	/**
-	 * Save a project to the given file. Project is transformed to a Json String and then saved to disk.
-	 * @param project	Project that should be saved
-	 * @param path		Project file
+	 * Reads the name of a project without loading the rest of the project. The
+	 * template images are skipped, in a container they are not even read.
+	 * @param path	Project file
+	 * @return	Name of the project, or null, if the project file has no name
+	 * @throws IOException	Whenever the project file cannot be read
+	 */
+	public static String readName(Path path) throws IOException {
+		if (path.toString().endsWith(CONTAINER_EXTENSION)) {
+			try (ZipInputStream zin = new ZipInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+				ZipEntry entry = null;
+				while ((entry = zin.getNextEntry()) != null) {
+					if (CONTAINER_PROJECT_ENTRY.equals(entry.getName()))
+						return readName(new InputStreamReader(zin, StandardCharsets.UTF_8));
+				}
+			}
+			return null;
+		}
+		InputStream input = new BufferedInputStream(Files.newInputStream(path));
+		if (path.toString().endsWith(".cmpz"))
+			input = new GZIPInputStream(input);
+		try (Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+			return readName(reader);
+		}
+	}
+
+	private static String readName(Reader reader) throws IOException {
+		JsonReader json = new JsonReader(reader);
+		json.beginObject();
+		while (json.hasNext()) {
+			if ("name".equals(json.nextName()))
+				return json.nextString();
+			json.skipValue();
+		}
+		return null;
+	}
+
+	private static byte[] readEntry(ZipInputStream zin) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		byte[] buffer = new byte[64 * 1024];
+		int read = 0;
+		while ((read = zin.read(buffer)) > 0) {
+			os.write(buffer, 0, read);
+		}
+		return os.toByteArray();
+	}
+
+	/**
+	 * Save a project to the given file. The project is written as compact json
+	 * directly to disk, without building the whole json in memory first.<br>
+	 * The project is written to a temporary file next to the project file, which
+	 * is synced to disk and then moved over the project file. If the save fails,
+	 * the project file is left untouched.
+	 * @param project		Project that should be saved
+	 * @param path			Project file
+	 * @param keepBackup	Keep the previous project file as hidden backup (<code>.{name}</code>)
 	 * @throws IOException	Whenever an IO Error occurs while writing data to disk.
 	 */
 	public static void save(Project project, Path path, boolean keepBackup) throws IOException {
+		if (path.toString().endsWith(CONTAINER_EXTENSION)) {
+			writeAtomically(path, keepBackup, output -> writeContainer(project, output));
+			return;
+		}
 		if (project.fp != null)
 			project.fp.encodeImages();
-		String jsonString = new GsonBuilder().setPrettyPrinting().create().toJson(project);
-		if(path.toString().endsWith(".cmpz"))
-			saveCompressed(jsonString, path, keepBackup);
-		else
-			saveUncompressed(jsonString, path, keepBackup);
+		boolean compressed = path.toString().endsWith(".cmpz");
+		writeAtomically(path, keepBackup, output -> {
+			GZIPOutputStream gzip = compressed ? new GZIPOutputStream(output, JSON_BUFFER_SIZE) : null;
+			Writer writer = new BufferedWriter(new OutputStreamWriter(gzip != null ? gzip : output, StandardCharsets.UTF_8), JSON_BUFFER_SIZE);
+			writeJson(project, writer, new Gson());
+			if (gzip != null)
+				gzip.finish();
+		});
 	}
-	
-	private static void saveUncompressed(String jsonString, Path path, boolean keepBackup) throws IOException {
-		try {
-			byte[] utf8JsonString = jsonString.getBytes("UTF-8");
-			if (Files.exists(path))
-				Files.copy(path, path.getParent().resolve("." + path.getFileName().toString()), StandardCopyOption.REPLACE_EXISTING);
-			Files.write(path, utf8JsonString, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-		} catch (UnsupportedEncodingException e) {
-		}
+
+	/**
+	 * Writes the content of a file to disk. The stream passed to the
+	 * {@link ContentWriter} must not be closed.
+	 */
+	private interface ContentWriter {
+		public void write(OutputStream output) throws IOException;
 	}
 
-	private static void saveCompressed(String jsonString, Path path, boolean keepBackup) throws IOException {
-		if (Files.exists(path))
-			Files.copy(path, path.getParent().resolve("." + path.getFileName().toString()), StandardCopyOption.REPLACE_EXISTING);
-		FileOutputStream output = new FileOutputStream(path.toFile());
+	/**
+	 * Writes a file by writing a temporary file in the same directory, forcing
+	 * it to disk and atomically moving it over the target. Every save uses its
+	 * own temporary file. The previous file is kept as hidden backup by hard
+	 * linking it, which is cheaper than copying it.
+	 */
+	private static void writeAtomically(Path path, boolean keepBackup, ContentWriter content) throws IOException {
+		Path dir = path.toAbsolutePath().getParent();
+		Path temp = Files.createTempFile(dir, "." + path.getFileName().toString(), ".tmp");
 		try {
-			Writer writer = new OutputStreamWriter(new GZIPOutputStream(output), StandardCharsets.UTF_8);
+			keepPermissions(path, temp);
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				BufferedOutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel), JSON_BUFFER_SIZE);
+				content.write(output);
+				output.flush();
+				channel.force(true);
+			}
+			if (keepBackup && Files.exists(path))
+				backup(path, dir.resolve("." + path.getFileName().toString()));
 			try {
-				writer.write(jsonString);
-			} finally {
-				writer.close();
+				Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
 			}
 		} finally {
-			output.close();
+			Files.deleteIfExists(temp);
 		}
 	}
 
+	/**
+	 * Gives the temporary file the permissions of the file it replaces,
+	 * temporary files are only readable by the owner. A new file gets the
+	 * permissions of its directory without the execute permissions.
+	 */
+	private static void keepPermissions(Path path, Path temp) throws IOException {
+		try {
+			Set<PosixFilePermission> permissions;
+			if (Files.exists(path)) {
+				permissions = Files.getPosixFilePermissions(path);
+			} else {
+				permissions = Files.getPosixFilePermissions(temp.getParent());
+				permissions.removeAll(EnumSet.of(PosixFilePermission.OWNER_EXECUTE, PosixFilePermission.GROUP_EXECUTE,
+						PosixFilePermission.OTHERS_EXECUTE));
+			}
+			Files.setPosixFilePermissions(temp, permissions);
+		} catch (UnsupportedOperationException e) {
+			// No POSIX permissions on this file system
+		}
+	}
+
+	/**
+	 * Keeps the current version of a file as backup. A hard link is used if the
+	 * file system supports it, otherwise the file is copied. The file is never
+	 * renamed, so the project file exists until it is replaced by the new one.
+	 */
+	private static void backup(Path path, Path backup) throws IOException {
+		Files.deleteIfExists(backup);
+		try {
+			Files.createLink(backup, path);
+			return;
+		} catch (UnsupportedOperationException | IOException e) {
+			System.out.println("Cannot hard link backup " + backup.getFileName() + ": " + e.getMessage());
+		}
+		Files.copy(path, backup, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Streams the project as compact json to the writer. The writer is flushed,
+	 * but not closed.
+	 */
+	private static void writeJson(Project project, Writer writer, Gson gson) throws IOException {
+		JsonWriter json = gson.newJsonWriter(writer);
+		gson.toJson(project, Project.class, json);
+		json.flush();
+	}
+
+	/**
+	 * Writes the project container. The json is streamed into a compressed
+	 * entry, the template images are written as PNG entries without compressing
+	 * them again. Images that have not been changed are written from the PNG data
+	 * they were loaded from.
+	 */
+	private static void writeContainer(Project project, OutputStream output) throws IOException {
+		// The streams are not closed, the caller still has to sync the file
+		ZipOutputStream zout = new ZipOutputStream(output);
+		zout.putNextEntry(new ZipEntry(CONTAINER_PROJECT_ENTRY));
+		Writer writer = new BufferedWriter(new OutputStreamWriter(zout, StandardCharsets.UTF_8), JSON_BUFFER_SIZE);
+		writeJson(project, writer, new GsonBuilder().setExclusionStrategies(SKIP_BASE64_IMAGES).create());
+		zout.closeEntry();
+		if (project.fp != null) {
+			for (TemplateImage image : TemplateImage.values()) {
+				writeStoredEntry(zout, image.getEntryName(), project.fp.encodeImage(image));
+			}
+		}
+		zout.finish();
+	}
+
+	private static void writeStoredEntry(ZipOutputStream zout, String name, byte[] data) throws IOException {
+		if (data == null)
+			return;
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		ZipEntry entry = new ZipEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(data.length);
+		entry.setCompressedSize(data.length);
+		entry.setCrc(crc.getValue());
+		zout.putNextEntry(entry);
+		zout.write(data);
+		zout.closeEntry();
+	}
+
 	/**
 	 * CSV Data, will be loaded by {@link ProjectManager} when CSV exists in project folder
 	 */
@@ -149,10 +389,15 @@ public class Project {
 	private String fileNameTemplate = "{no}.png";
 	
 	/**
-	 * Available custom fonts for this Project
+	 * Custom fonts of this Project that have already been resolved
 	 */
 	private transient Map<String, Font> fonts = null;
 	
+	/**
+	 * Font files of this project, they are loaded by the {@link FontRegistry} on first use
+	 */
+	private transient Map<String, Path> fontFiles = null;
+	
 	/**
 	 * Field package that contains image data and {@link Field}s
 	 */
@@ -168,6 +413,16 @@ public class Project {
 	 */
 	private transient Path projectRoot = null;
 
+	/**
+	 * Render cache in the project folder, set by {@link ProjectManager} when the project is opened
+	 */
+	private transient RenderCache renderCache = null;
+
+	/**
+	 * Symbols of the project, set by {@link ProjectManager} when the project is opened
+	 */
+	private transient SymbolAtlas symbolAtlas = null;
+
 	/**
 	 * CSV-Delimiter for the csv columns
 	 */
@@ -192,6 +447,33 @@ public class Project {
 	 * Custom processing thread value
 	 */
 	private int customParallelProcessingThreads = 1;
+	
+	/**
+	 * Threads used to PNG encode drawn cards, 0 for automatic
+	 */
+	private int encodeThreads = 0;
+	
+	/**
+	 * Threads used to write encoded cards to disk, 0 for automatic
+	 */
+	private int writeThreads = 0;
+	
+	/**
+	 * Render threads with the best throughput found by the last job in
+	 * {@link ParallelProcessing#ADAPTIVE} mode, 0 if nothing has been learned yet
+	 */
+	private int adaptiveThreadsHint = 0;
+	
+	/**
+	 * Quality profile the cards are drawn with
+	 */
+	private RenderQuality renderQuality = RenderQuality.NORMAL;
+	
+	/**
+	 * Factor the template, fields, fonts and media are scaled with while
+	 * drawing, 0 to choose it by the render quality
+	 */
+	private double renderScale = 0;
 		
 	
 	/**
@@ -202,7 +484,8 @@ public class Project {
 		this.name = name;
 		this.fp = new FieldPackage();
 		this.csvFieldMapping = new HashMap<>();
-		this.fonts = new HashMap<>();
+		this.fonts = new ConcurrentHashMap<>();
+		this.fontFiles = new ConcurrentHashMap<>();
 	}
 	
 	/**
@@ -214,6 +497,16 @@ public class Project {
 		this.fonts.put(fontName, font);
 	}
 	
+	/**
+	 * Adds a font file to the project object. The font is loaded when it is used.
+	 * @param fontName	Name of the font.
+	 * @param fontFile	True type font file
+	 */
+	public void addFontFile(String fontName, Path fontFile) {
+		this.fontFiles.put(fontName, fontFile);
+		this.fonts.remove(fontName);
+	}
+	
 	/**
 	 * Maps a certain {@link Field} to a CSV column.
 	 * @param field		Fieldname to be mapped
@@ -252,8 +545,29 @@ public class Project {
 		return fileNameTemplate;
 	}
 	
+	/**
+	 * Returns all custom fonts of the project. Fonts that have not been used yet
+	 * are loaded, use {@link #getFontNames()} if only the names are needed.
+	 * @return	Map with the custom fonts by name
+	 */
 	public Map<String, Font> getFonts() {
-		return fonts;
+		Map<String, Font> all = new HashMap<>();
+		for (String fontName : getFontNames()) {
+			Font font = getFont(fontName);
+			if (font != null)
+				all.put(fontName, font);
+		}
+		return all;
+	}
+	
+	/**
+	 * Returns the names of all custom fonts of the project without loading them.
+	 * @return	Names of the custom fonts
+	 */
+	public Set<String> getFontNames() {
+		Set<String> names = new HashSet<>(fontFiles.keySet());
+		names.addAll(fonts.keySet());
+		return names;
 	}
 
 	public FieldPackage getFp() {
@@ -277,8 +591,33 @@ public class Project {
 		return projectRoot;
 	}
 
+	/**
+	 * Returns the render cache of the project.
+	 * @return	Render cache, or null, if the project has not been opened from its project folder
+	 */
+	public RenderCache getRenderCache() {
+		return renderCache;
+	}
+
+	public void setRenderCache(RenderCache renderCache) {
+		this.renderCache = renderCache;
+	}
+
+	/**
+	 * Returns the symbols of the project.
+	 * @return	Symbol atlas, or null, if the project has not been opened from its project folder
+	 */
+	public SymbolAtlas getSymbolAtlas() {
+		return symbolAtlas;
+	}
+
+	public void setSymbolAtlas(SymbolAtlas symbolAtlas) {
+		this.symbolAtlas = symbolAtlas;
+	}
+
 	private void init() {
-		this.fonts = new HashMap<>();
+		this.fonts = new ConcurrentHashMap<>();
+		this.fontFiles = new ConcurrentHashMap<>();
 		if(this.csvFieldMapping == null) {
 			csvFieldMapping = new HashMap<>();
 		}
@@ -292,6 +631,7 @@ public class Project {
 
 	public void removeFont(String fontName) {
 		this.fonts.remove(fontName);
+		this.fontFiles.remove(fontName);
 	}
 	
 	public void setCsvData(String[][] csvData) {
@@ -341,8 +681,24 @@ public class Project {
 		return mtbr.size();
 	}
 
+	/**
+	 * Returns a custom font of the project, loading it on first use.
+	 * @param font	Name of the font
+	 * @return	Font, or null, if the project has no font with that name
+	 */
 	public Font getFont(String font) {
-		return this.fonts.get(font);
+		if (font == null)
+			return null;
+		Font f = this.fonts.get(font);
+		if (f == null) {
+			Path file = this.fontFiles.get(font);
+			if (file != null) {
+				f = FontRegistry.getFont(file);
+				if (f != null)
+					this.fonts.put(font, f);
+			}
+		}
+		return f;
 	}
 	
 	public CSVFormat getCSVFormat() {
@@ -404,8 +760,92 @@ public class Project {
 		this.processingMode = processingMode;
 	}
 
+	/**
+	 * Returns the number of threads used to PNG encode drawn cards. When not set,
+	 * half of the available processors are used.
+	 * @return	Number of encode threads, at least 1
+	 */
+	public int getEncodeThreads() {
+		return encodeThreads > 0 ? encodeThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	}
+	
+	public int getCustomEncodeThreads() {
+		return encodeThreads;
+	}
+	
+	public void setEncodeThreads(int encodeThreads) {
+		this.encodeThreads = encodeThreads;
+	}
+	
+	/**
+	 * Returns the number of threads used to write the encoded cards to disk. When
+	 * not set, a single writer is used.
+	 * @return	Number of write threads, at least 1
+	 */
+	public int getWriteThreads() {
+		return writeThreads > 0 ? writeThreads : 1;
+	}
+	
+	public int getCustomWriteThreads() {
+		return writeThreads;
+	}
+	
+	public void setWriteThreads(int writeThreads) {
+		this.writeThreads = writeThreads;
+	}
+
+	/**
+	 * Returns the render threads learned in {@link ParallelProcessing#ADAPTIVE} mode.
+	 * @return	Number of threads, 0 if nothing has been learned yet
+	 */
+	public int getAdaptiveThreadsHint() {
+		return adaptiveThreadsHint;
+	}
+	
+	public void setAdaptiveThreadsHint(int adaptiveThreadsHint) {
+		this.adaptiveThreadsHint = adaptiveThreadsHint;
+	}
+
+	public RenderQuality getRenderQuality() {
+		if(renderQuality == null)
+			renderQuality = RenderQuality.NORMAL;
+		return renderQuality;
+	}
+	
+	public void setRenderQuality(RenderQuality renderQuality) {
+		this.renderQuality = renderQuality;
+	}
+
+	/**
+	 * Returns the factor the cards are drawn with. If no factor is set, drafts
+	 * are drawn at half the size of the template, all other qualities at the
+	 * size of the template.
+	 * 
+	 * @return Render scale, 1 draws the cards at the size of the template
+	 */
+	public double getRenderScale() {
+		if (renderScale > 0)
+			return renderScale;
+		return getRenderQuality() == RenderQuality.DRAFT ? 0.5 : 1;
+	}
+
+	/**
+	 * Returns the factor set for the project.
+	 * 
+	 * @return Render scale, 0 if it is chosen by the render quality
+	 */
+	public double getRenderScaleSetting() {
+		return renderScale;
+	}
+
+	public void setRenderScale(double renderScale) {
+		this.renderScale = renderScale > 0 ? renderScale : 0;
+	}
+
 	public int getParallelProcessingThreads() {
-		return this.processingMode == ParallelProcessing.CPU_MINUS_ONE ? Runtime.getRuntime().availableProcessors()-1 : this.processingMode == ParallelProcessing.SINGLE_THREAD ? 1 : this.customParallelProcessingThreads;
+		if (getProcessingMode() == ParallelProcessing.ADAPTIVE)
+			return getProcessingMode().getThreads(this.adaptiveThreadsHint);
+		return getProcessingMode().getThreads(this.customParallelProcessingThreads);
 	}
 
 	public Field getFieldByName(String fieldName) {
@@ -0,0 +1,107 @@
+package vv3ird.populatecard.data;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * Quality profile the cards of a project are drawn with. The profile sets the
+ * rendering hints of the graphics and decides how images are scaled to their
+ * fields.<br>
+ * {@link #DRAFT} trades quality for speed for proofing runs, images are scaled
+ * nearest neighbour and Java2D is asked for speed. {@link #NORMAL} draws like
+ * the cards have always been drawn. {@link #FINAL} uses greyscale antialiasing
+ * with fractional metrics for the text and bicubic interpolation for images.
+ * Greyscale antialiasing is used instead of LCD antialiasing, so the output
+ * does not depend on the subpixel layout of a screen.
+ *
+ * @author VV3IRD
+ *
+ */
+public enum RenderQuality {
+
+	DRAFT("Draft (fast)"), NORMAL("Normal"), FINAL("Final (best quality)");
+
+	private String display = null;
+
+	private RenderQuality(String display) {
+		this.display = display;
+	}
+
+	/**
+	 * Sets the rendering hints of the profile.
+	 *
+	 * @param g	Graphics to draw on
+	 */
+	public void applyTo(Graphics2D g) {
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		switch (this) {
+		case DRAFT:
+			g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+			g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
+			break;
+		case FINAL:
+			g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+			g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Scales an image to the given size.
+	 *
+	 * @param img		Image to be scaled
+	 * @param width		Width of the scaled image
+	 * @param height	Height of the scaled image
+	 * @return Scaled image with alpha channel
+	 */
+	public BufferedImage scale(BufferedImage img, int width, int height) {
+		switch (this) {
+		case DRAFT:
+			return draw(img, width, height, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+		case FINAL:
+			// Bicubic interpolation only looks at 4x4 pixels, large reductions are done in halves
+			BufferedImage scaled = img;
+			int w = img.getWidth();
+			int h = img.getHeight();
+			while (w / 2 >= width && h / 2 >= height) {
+				w /= 2;
+				h /= 2;
+				scaled = draw(scaled, w, h, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+			}
+			return w == width && h == height && scaled != img ? scaled
+					: draw(scaled, width, height, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+		default:
+			Image smooth = img.getScaledInstance(width, height, BufferedImage.SCALE_SMOOTH);
+			BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = result.createGraphics();
+			g.setComposite(AlphaComposite.Src);
+			g.drawImage(smooth, 0, 0, null);
+			g.dispose();
+			return result;
+		}
+	}
+
+	private static BufferedImage draw(BufferedImage img, int width, int height, Object interpolation) {
+		BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = result.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+		g.drawImage(img, 0, 0, width, height, null);
+		g.dispose();
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return display;
+	}
+}
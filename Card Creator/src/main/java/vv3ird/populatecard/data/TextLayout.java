@@ -0,0 +1,190 @@
+package vv3ird.populatecard.data;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import vv3ird.populatecard.data.text.TokenStream;
+
+/**
+ * Lines of text placed in one field of a chain of linked fields. A layout is
+ * created by {@link Field#layout(TokenStream, int, FieldStyle, int, java.awt.Graphics2D)}
+ * and drawn afterwards, so a field can be laid out without drawing anything.
+ * The layout ends where the text no longer fits into the field, the next field
+ * of the chain continues at {@link #getEnd()} with {@link #getEndStyle()}.<br>
+ * Lines are stored in parallel arrays, positions are relative to the field.
+ * Layouts are reused for the next field by {@link #reset(TokenStream, int)},
+ * the arrays keep their capacity.
+ *
+ * @author VV3IRD
+ *
+ */
+class TextLayout {
+
+	TokenStream tokens;
+
+	/**
+	 * Index of the first token of the layout
+	 */
+	int from;
+
+	/**
+	 * Index of the first token that has not been placed
+	 */
+	int end;
+
+	/**
+	 * Style at the end of the layout
+	 */
+	FieldStyle endStyle;
+
+	/**
+	 * Flag if the text does not fit into the field
+	 */
+	boolean overflow = false;
+
+	/**
+	 * Distance all lines are moved down to align the text vertically
+	 */
+	int offset = 0;
+
+	int lines = 0;
+
+	int[] lineFrom = new int[8];
+
+	int[] lineTo = new int[8];
+
+	int[] x = new int[8];
+
+	int[] y = new int[8];
+
+	int[] spacing = new int[8];
+
+	/**
+	 * Number of spaces of a line that are one pixel wider than the spacing
+	 */
+	int[] stretch = new int[8];
+
+	int[] tabLength = new int[8];
+
+	int[] shrink = new int[8];
+
+	/**
+	 * Style at the start of a line
+	 */
+	FieldStyle[] style = new FieldStyle[8];
+
+	/**
+	 * Style spaces and tabs of a line are measured with
+	 */
+	FieldStyle[] plain = new FieldStyle[8];
+
+	/**
+	 * Image of an image line, null for lines of text
+	 */
+	BufferedImage[] image = new BufferedImage[8];
+
+	/**
+	 * Empties the layout, so it can be filled for another field.
+	 *
+	 * @param tokens	Tokens of the text
+	 * @param from		Index of the first token of the layout
+	 * @return The layout itself
+	 */
+	TextLayout reset(TokenStream tokens, int from) {
+		this.tokens = tokens;
+		this.from = from;
+		this.end = from;
+		this.endStyle = null;
+		this.overflow = false;
+		this.offset = 0;
+		this.lines = 0;
+		return this;
+	}
+
+	/**
+	 * Adds a line of text.
+	 *
+	 * @param from		Index of the first token of the line
+	 * @param to		Index after the last token of the line
+	 * @param x			Start of the line
+	 * @param y			Baseline of the line
+	 * @param spacing	Width of the spaces between words
+	 * @param stretch	Number of spaces that are one pixel wider
+	 * @param tabLength	Width of tabs
+	 * @param shrink	Points the text has been shrunk to fit
+	 * @param style		Style at the start of the line
+	 * @param plain		Style spaces are measured with
+	 */
+	void addText(int from, int to, int x, int y, int spacing, int stretch, int tabLength, int shrink, FieldStyle style,
+			FieldStyle plain) {
+		int line = add();
+		this.lineFrom[line] = from;
+		this.lineTo[line] = to;
+		this.x[line] = x;
+		this.y[line] = y;
+		this.spacing[line] = spacing;
+		this.stretch[line] = stretch;
+		this.tabLength[line] = tabLength;
+		this.shrink[line] = shrink;
+		this.style[line] = style;
+		this.plain[line] = plain;
+	}
+
+	/**
+	 * Adds an image.
+	 *
+	 * @param token	Index of the image token
+	 * @param y		Top of the image
+	 * @param image	Scaled image
+	 */
+	void addImage(int token, int y, BufferedImage image) {
+		int line = add();
+		this.lineFrom[line] = token;
+		this.lineTo[line] = token + 1;
+		this.y[line] = y;
+		this.image[line] = image;
+	}
+
+	private int add() {
+		if (lines == lineFrom.length) {
+			int capacity = lines * 2;
+			lineFrom = Arrays.copyOf(lineFrom, capacity);
+			lineTo = Arrays.copyOf(lineTo, capacity);
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			spacing = Arrays.copyOf(spacing, capacity);
+			stretch = Arrays.copyOf(stretch, capacity);
+			tabLength = Arrays.copyOf(tabLength, capacity);
+			shrink = Arrays.copyOf(shrink, capacity);
+			style = Arrays.copyOf(style, capacity);
+			plain = Arrays.copyOf(plain, capacity);
+			image = Arrays.copyOf(image, capacity);
+		}
+		x[lines] = 0;
+		spacing[lines] = 0;
+		stretch[lines] = 0;
+		tabLength[lines] = 0;
+		shrink[lines] = 0;
+		style[lines] = null;
+		plain[lines] = null;
+		image[lines] = null;
+		return lines++;
+	}
+
+	/**
+	 * Returns if the layout holds the rest of the text.
+	 *
+	 * @return true, if no token is left for the linked field
+	 */
+	boolean isComplete() {
+		return end >= tokens.size();
+	}
+
+	int getEnd() {
+		return end;
+	}
+
+	FieldStyle getEndStyle() {
+		return endStyle;
+	}
+}
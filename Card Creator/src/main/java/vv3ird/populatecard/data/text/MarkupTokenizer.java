@@ -0,0 +1,324 @@
+package vv3ird.populatecard.data.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns the content of a text field into a {@link TokenStream} in a single pass
+ * over the text. Paragraphs are separated by -n-, base64 encoded images,
+ * &lt;imgb&gt;...&lt;/imgb&gt;, are placed in paragraphs of their own. Text
+ * following an image is always indented. All other tags are looked up in the
+ * {@link TagRegistry} and turned into spans, unknown tags are drawn as text.<br>
+ * Token streams are cached by the text, so a value used on many cards is only
+ * tokenized once. The cache is limited to a number of characters, the least
+ * recently used streams are dropped first.
+ *
+ * @author VV3IRD
+ *
+ */
+public class MarkupTokenizer {
+
+	private static final String PARAGRAPH_SEPARATOR = "-n-";
+
+	private static final String IMAGE_START = "<imgb>";
+
+	private static final String IMAGE_END = "</imgb>";
+
+	/**
+	 * Maximum length of a tag including its argument
+	 */
+	private static final int MAX_TAG_LENGTH = 64;
+
+	/**
+	 * Maximum number of characters of all cached texts
+	 */
+	private static final long CACHE_CHARS = 4L * 1024 * 1024;
+
+	private static final LinkedHashMap<Key, TokenStream> cache = new LinkedHashMap<>(64, 0.75f, true);
+
+	private static long cachedChars = 0;
+
+	/**
+	 * Returns the tokens of a text. Texts that have been tokenized before are
+	 * returned from the cache.
+	 *
+	 * @param text		Content of a text field
+	 * @param indented	Flag if paragraphs should be indented
+	 * @return Tokens of the text
+	 */
+	public static TokenStream tokenize(String text, boolean indented) {
+		Key key = new Key(text, indented);
+		synchronized (cache) {
+			TokenStream tokens = cache.get(key);
+			if (tokens != null)
+				return tokens;
+		}
+		TokenStream tokens = parse(text, indented);
+		if (text.length() <= CACHE_CHARS / 4) {
+			synchronized (cache) {
+				if (cache.put(key, tokens) == null)
+					cachedChars += text.length();
+				Iterator<Map.Entry<Key, TokenStream>> it = cache.entrySet().iterator();
+				while (cachedChars > CACHE_CHARS && it.hasNext()) {
+					cachedChars -= it.next().getKey().text.length();
+					it.remove();
+				}
+			}
+		}
+		return tokens;
+	}
+
+	/**
+	 * Drops all cached token streams, e.g. after the tags have changed.
+	 */
+	public static void clearCache() {
+		synchronized (cache) {
+			cache.clear();
+			cachedChars = 0;
+		}
+	}
+
+	/**
+	 * Tokenizes a text without using the cache.
+	 *
+	 * @param text		Content of a text field
+	 * @param indented	Flag if paragraphs should be indented
+	 * @return Tokens of the text
+	 */
+	public static TokenStream parse(String text, boolean indented) {
+		TokenStream tokens = new TokenStream(text.toCharArray());
+		// Bounds of the paragraphs, empty paragraphs at the end are dropped
+		int[] bounds = new int[8];
+		int count = 0;
+		int start = 0;
+		int separator = text.indexOf(PARAGRAPH_SEPARATOR);
+		while (true) {
+			int end = separator >= 0 ? separator : text.length();
+			if (count + 2 > bounds.length)
+				bounds = Arrays.copyOf(bounds, bounds.length * 2);
+			bounds[count++] = start;
+			bounds[count++] = end;
+			if (separator < 0)
+				break;
+			start = separator + PARAGRAPH_SEPARATOR.length();
+			separator = text.indexOf(PARAGRAPH_SEPARATOR, start);
+		}
+		// Indented paragraphs are never empty, as they start with a tab
+		while (!indented && count > 2 && bounds[count - 2] == bounds[count - 1])
+			count -= 2;
+		if (!indented && count == 2 && bounds[0] == bounds[1] && text.length() > 0)
+			count = 0;
+		TagRegistry registry = TagRegistry.getDefault();
+		OpenSpans open = new OpenSpans();
+		for (int i = 0; i < count; i += 2) {
+			addParagraph(tokens, text, bounds[i], bounds[i + 1], indented, registry, open);
+		}
+		tokens.trim();
+		return tokens;
+	}
+
+	/**
+	 * Adds a paragraph, the images in it are placed in paragraphs of their own.
+	 */
+	private static void addParagraph(TokenStream tokens, String text, int start, int end, boolean indented,
+			TagRegistry registry, OpenSpans open) {
+		int imageStart = text.indexOf(IMAGE_START, start);
+		int imageEnd = text.indexOf(IMAGE_END, start);
+		while (imageStart >= 0 && imageEnd >= 0 && imageStart < imageEnd && imageEnd < end) {
+			if (indented || imageStart > start)
+				addText(tokens, text, start, imageStart, indented, registry, open);
+			tokens.add(TokenStream.PARAGRAPH, imageStart, imageStart);
+			tokens.add(TokenStream.IMAGE, imageStart + IMAGE_START.length(), imageEnd);
+			start = imageEnd + IMAGE_END.length();
+			indented = true;
+			imageStart = text.indexOf(IMAGE_START, start);
+			imageEnd = text.indexOf(IMAGE_END, start);
+		}
+		addText(tokens, text, start, end, indented, registry, open);
+	}
+
+	/**
+	 * Adds a paragraph of text, split into words, spaces, tabs and tags.
+	 */
+	private static void addText(TokenStream tokens, String text, int start, int end, boolean indented,
+			TagRegistry registry, OpenSpans open) {
+		tokens.add(TokenStream.PARAGRAPH, start, start);
+		if (indented)
+			tokens.add(TokenStream.TAB, start, start);
+		int run = start;
+		int i = start;
+		while (i < end) {
+			char c = text.charAt(i);
+			int next = -1;
+			if (c == ' ' || c == '\t') {
+				if (run < i)
+					tokens.add(TokenStream.TEXT, run, i);
+				tokens.add(c == ' ' ? TokenStream.SPACE : TokenStream.TAB, i, i + 1);
+				next = i + 1;
+			} else if (c == '<') {
+				int tagEnd = i + 1;
+				while (tagEnd < end && tagEnd - i < MAX_TAG_LENGTH && text.charAt(tagEnd) != '>')
+					tagEnd++;
+				if (tagEnd < end && text.charAt(tagEnd) == '>')
+					next = addTag(tokens, text, run, i, tagEnd + 1, end, registry, open);
+			}
+			if (next < 0) {
+				i++;
+			} else {
+				i = next;
+				run = next;
+			}
+		}
+		if (run < end)
+			tokens.add(TokenStream.TEXT, run, end);
+	}
+
+	/**
+	 * Adds the tokens of a tag, if it is a registered tag.
+	 * 
+	 * @return Index of the first character after the tag, or -1, if it is not a
+	 *         tag and should be drawn as text
+	 */
+	private static int addTag(TokenStream tokens, String text, int run, int tagStart, int tagEnd, int end,
+			TagRegistry registry, OpenSpans open) {
+		boolean closing = text.charAt(tagStart + 1) == '/';
+		int nameStart = tagStart + (closing ? 2 : 1);
+		int nameEnd = nameStart;
+		while (nameEnd < tagEnd - 1 && Character.isLetter(text.charAt(nameEnd)))
+			nameEnd++;
+		if (nameEnd == nameStart)
+			return -1;
+		String argument = null;
+		if (nameEnd < tagEnd - 1) {
+			if (closing || text.charAt(nameEnd) != '=')
+				return -1;
+			argument = text.substring(nameEnd + 1, tagEnd - 1);
+			if (argument.indexOf(' ') >= 0 || argument.indexOf('<') >= 0)
+				return -1;
+		}
+		String name = text.substring(nameStart, nameEnd);
+		TagHandler handler = registry.get(name);
+		if (handler == null)
+			return -1;
+		TextAttribute attribute = handler.getAttribute();
+		if (closing) {
+			int span = open.remove(name);
+			if (span >= 0) {
+				if (run < tagStart)
+					tokens.add(TokenStream.TEXT, run, tagStart);
+				tokens.closeSpan(span, tagStart, tagEnd, open.getInnermost(attribute));
+				return tagEnd;
+			}
+			int value = handler.getClosingValue();
+			if (value == TagHandler.IGNORE || attribute.isInline())
+				return -1;
+			if (run < tagStart)
+				tokens.add(TokenStream.TEXT, run, tagStart);
+			// The value lasts until the end, so the span is never removed
+			open.add(name, tokens.openSpan(attribute, value, tagStart, tagEnd), attribute);
+			return tagEnd;
+		}
+		int value;
+		try {
+			value = handler.parseValue(argument);
+		} catch (IllegalArgumentException e) {
+			return -1;
+		}
+		if (attribute.isInline()) {
+			// The content up to the closing tag is the object, e.g. the name of a symbol
+			String closingTag = "</" + name + ">";
+			int contentEnd = text.indexOf(closingTag, tagEnd);
+			if (contentEnd < 0 || contentEnd + closingTag.length() > end)
+				return -1;
+			for (int i = tagEnd; i < contentEnd; i++) {
+				char c = text.charAt(i);
+				if (c == ' ' || c == '\t' || c == '<')
+					return -1;
+			}
+			if (run < tagStart)
+				tokens.add(TokenStream.TEXT, run, tagStart);
+			tokens.add(TokenStream.SYMBOL, tagEnd, contentEnd, value);
+			return contentEnd + closingTag.length();
+		}
+		if (run < tagStart)
+			tokens.add(TokenStream.TEXT, run, tagStart);
+		open.add(name, tokens.openSpan(attribute, value, tagStart, tagEnd), attribute);
+		return tagEnd;
+	}
+
+	/**
+	 * Spans opened but not closed yet while tokenizing, in the order they have
+	 * been opened
+	 */
+	private static class OpenSpans {
+
+		private final List<String> names = new ArrayList<>();
+
+		private final List<TextAttribute> attributes = new ArrayList<>();
+
+		private final List<Integer> spans = new ArrayList<>();
+
+		private void add(String name, int span, TextAttribute attribute) {
+			names.add(name);
+			attributes.add(attribute);
+			spans.add(span);
+		}
+
+		/**
+		 * Removes the innermost open span of a tag.
+		 * 
+		 * @return Index of the span, or -1, if no span of the tag is open
+		 */
+		private int remove(String name) {
+			for (int i = names.size() - 1; i >= 0; i--) {
+				if (names.get(i).equals(name)) {
+					names.remove(i);
+					attributes.remove(i);
+					return spans.remove(i);
+				}
+			}
+			return -1;
+		}
+
+		private int getInnermost(TextAttribute attribute) {
+			for (int i = attributes.size() - 1; i >= 0; i--) {
+				if (attributes.get(i) == attribute)
+					return spans.get(i);
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Key of the cache, the same text is tokenized differently, depending on the
+	 * indentation
+	 */
+	private static class Key {
+
+		private final String text;
+
+		private final boolean indented;
+
+		private Key(String text, boolean indented) {
+			this.text = text;
+			this.indented = indented;
+		}
+
+		@Override
+		public int hashCode() {
+			return text.hashCode() * 31 + (indented ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return indented == other.indented && text.equals(other.text);
+		}
+	}
+}
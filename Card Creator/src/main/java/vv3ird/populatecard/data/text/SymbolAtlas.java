@@ -0,0 +1,300 @@
+package vv3ird.populatecard.data.text;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Named symbols of a project, drawn inline in card texts by
+ * &lt;sym&gt;name&lt;/sym&gt;. The symbols are image files in the symbols folder
+ * of the project, the name of a symbol is the file name without extension.<br>
+ * Symbols are drawn like glyphs of a font: when a height is used for the first
+ * time, all symbols are scaled to that height once and packed into a single
+ * texture. Drawing a symbol then only copies its box from the texture, no
+ * image is decoded or scaled while cards are rendered. Symbols are looked up by
+ * the characters of their name, without creating a String.<br>
+ * An atlas can be shared by all threads, textures are replaced as a whole when
+ * symbols are added.
+ *
+ * @author VV3IRD
+ *
+ */
+public class SymbolAtlas {
+
+	/**
+	 * Name of the symbols folder in the project
+	 */
+	public static final String SYMBOLS_FOLDER = "symbols";
+
+	/**
+	 * Transparent pixels between the symbols of a texture, so scaled textures
+	 * do not bleed into the neighbouring symbol
+	 */
+	private static final int GAP = 1;
+
+	/**
+	 * Image files of the symbols by name
+	 */
+	private final Map<String, Path> files = new ConcurrentHashMap<>();
+
+	/**
+	 * Decoded images of the symbols by name, loaded on first use
+	 */
+	private final Map<String, BufferedImage> images = new ConcurrentHashMap<>();
+
+	/**
+	 * Textures by the height of their symbols
+	 */
+	private final Map<Integer, Texture> textures = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates an atlas with the symbols of a folder.
+	 *
+	 * @param folder	Folder with the symbol images, may not exist yet
+	 * @throws IOException	Whenever the folder cannot be listed
+	 */
+	public SymbolAtlas(Path folder) throws IOException {
+		if (Files.isDirectory(folder)) {
+			try (Stream<Path> symbolFiles = Files.list(folder)) {
+				symbolFiles.filter(Files::isRegularFile).forEach(this::addSymbol);
+			}
+		}
+	}
+
+	/**
+	 * Returns the name of the symbol of an image file.
+	 *
+	 * @param file	Image file
+	 * @return File name without extension
+	 */
+	public static String getSymbolName(Path file) {
+		String name = file.getFileName().toString();
+		return name.lastIndexOf(".") > 0 ? name.substring(0, name.lastIndexOf(".")) : name;
+	}
+
+	/**
+	 * Adds a symbol, a symbol with the same name is replaced. The image is
+	 * loaded when the symbol is drawn for the first time.
+	 *
+	 * @param file	Image file of the symbol
+	 * @return Name of the symbol
+	 */
+	public String addSymbol(Path file) {
+		String name = getSymbolName(file);
+		files.put(name, file);
+		images.remove(name);
+		textures.clear();
+		return name;
+	}
+
+	/**
+	 * Removes a symbol, it is drawn as text afterwards.
+	 *
+	 * @param name	Name of the symbol
+	 */
+	public void removeSymbol(String name) {
+		files.remove(name);
+		images.remove(name);
+		textures.clear();
+	}
+
+	/**
+	 * Returns the names of all symbols.
+	 *
+	 * @return Sorted names of the symbols
+	 */
+	public Set<String> getSymbolNames() {
+		return new TreeSet<>(files.keySet());
+	}
+
+	/**
+	 * Returns the glyph of a symbol in the given height. The texture of the
+	 * height is created, if it is used for the first time.
+	 *
+	 * @param text		Characters of the text
+	 * @param start		Index of the first character of the name
+	 * @param end		Index after the last character of the name
+	 * @param height	Height of the symbol in pixels
+	 * @return Glyph of the symbol, or null, if there is no such symbol or its
+	 *         image cannot be read
+	 */
+	public Glyph getGlyph(char[] text, int start, int end, int height) {
+		if (height <= 0 || files.isEmpty())
+			return null;
+		Texture texture = textures.get(height);
+		if (texture == null) {
+			texture = createTexture(height);
+			Texture existing = textures.putIfAbsent(height, texture);
+			if (existing != null)
+				texture = existing;
+		}
+		return texture.getGlyph(text, start, end);
+	}
+
+	/**
+	 * Scales all symbols to the given height and packs them into one texture,
+	 * from left to right.
+	 */
+	private Texture createTexture(int height) {
+		Map<String, Image> scaled = new LinkedHashMap<>();
+		Map<String, Integer> widths = new LinkedHashMap<>();
+		int width = 0;
+		for (String name : getSymbolNames()) {
+			BufferedImage img = getImage(name);
+			if (img == null)
+				continue;
+			int w = Math.max(1, Math.round((float) img.getWidth() * height / img.getHeight()));
+			scaled.put(name, img.getScaledInstance(w, height, Image.SCALE_SMOOTH));
+			widths.put(name, w);
+			width += w + GAP;
+		}
+		BufferedImage image = new BufferedImage(Math.max(1, width), height, BufferedImage.TYPE_INT_ARGB);
+		Map<String, Glyph> glyphs = new LinkedHashMap<>();
+		Graphics2D g = image.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		int x = 0;
+		for (Map.Entry<String, Image> entry : scaled.entrySet()) {
+			int w = widths.get(entry.getKey());
+			g.drawImage(entry.getValue(), x, 0, null);
+			glyphs.put(entry.getKey(), new Glyph(image, x, w, height));
+			x += w + GAP;
+		}
+		g.dispose();
+		System.out.println("Created symbol texture for height " + height + " with " + glyphs.size() + " symbols");
+		return new Texture(glyphs);
+	}
+
+	private BufferedImage getImage(String name) {
+		BufferedImage img = images.get(name);
+		if (img == null) {
+			Path file = files.get(name);
+			if (file == null)
+				return null;
+			try {
+				img = ImageIO.read(file.toFile());
+			} catch (IOException e) {
+				System.out.println("Symbol " + name + " could not be loaded: " + e.getMessage());
+			}
+			if (img == null || img.getWidth() <= 0 || img.getHeight() <= 0)
+				return null;
+			images.put(name, img);
+		}
+		return img;
+	}
+
+	/**
+	 * Symbols of one height, packed into one image. The glyphs are sorted by
+	 * name.
+	 */
+	private static class Texture {
+
+		private final String[] names;
+
+		private final Glyph[] glyphs;
+
+		private Texture(Map<String, Glyph> glyphs) {
+			this.names = glyphs.keySet().toArray(new String[0]);
+			this.glyphs = glyphs.values().toArray(new Glyph[0]);
+		}
+
+		/**
+		 * Finds the glyph of a name by binary search.
+		 */
+		private Glyph getGlyph(char[] text, int start, int end) {
+			int low = 0;
+			int high = names.length - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int cmp = compare(names[mid], text, start, end);
+				if (cmp < 0)
+					low = mid + 1;
+				else if (cmp > 0)
+					high = mid - 1;
+				else
+					return glyphs[mid];
+			}
+			return null;
+		}
+
+		/**
+		 * Compares a name to a range of characters, like
+		 * {@link String#compareTo(String)}.
+		 */
+		private static int compare(String name, char[] text, int start, int end) {
+			int length = Math.min(name.length(), end - start);
+			for (int i = 0; i < length; i++) {
+				char c = name.charAt(i);
+				if (c != text[start + i])
+					return c - text[start + i];
+			}
+			return name.length() - (end - start);
+		}
+	}
+
+	/**
+	 * Box of a symbol in a texture
+	 */
+	public static class Glyph {
+
+		private final BufferedImage texture;
+
+		private final int x;
+
+		private final int width;
+
+		private final int height;
+
+		private Glyph(BufferedImage texture, int x, int width, int height) {
+			this.texture = texture;
+			this.x = x;
+			this.width = width;
+			this.height = height;
+		}
+
+		public int getWidth() {
+			return width;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		/**
+		 * Draws the symbol, standing on the baseline.
+		 *
+		 * @param g			Graphics to draw on
+		 * @param x			Left edge of the symbol
+		 * @param baseline	Baseline of the text
+		 */
+		public void draw(Graphics2D g, int x, int baseline) {
+			draw(g, x, baseline, width, height);
+		}
+
+		/**
+		 * Draws the symbol into a box of another size, standing on the baseline.
+		 * Used for glyphs rasterized at the device resolution of a scaled
+		 * graphics.
+		 *
+		 * @param g			Graphics to draw on
+		 * @param x			Left edge of the symbol
+		 * @param baseline	Baseline of the text
+		 * @param width		Width of the box in user space
+		 * @param height	Height of the box in user space
+		 */
+		public void draw(Graphics2D g, int x, int baseline, int width, int height) {
+			g.drawImage(texture, x, baseline - height, x + width, baseline, this.x, 0, this.x + this.width, this.height, null);
+		}
+	}
+}
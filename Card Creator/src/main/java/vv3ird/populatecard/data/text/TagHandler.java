@@ -0,0 +1,44 @@
+package vv3ird.populatecard.data.text;
+
+/**
+ * Handler of a markup tag, &lt;name&gt; or &lt;name=argument&gt;, closed by
+ * &lt;/name&gt;. A handler turns the tag into a span of an attribute.
+ *
+ * @author VV3IRD
+ *
+ */
+public interface TagHandler {
+
+	/**
+	 * Value returned by {@link #getClosingValue()}, if closing tags without an
+	 * opening tag should be ignored
+	 */
+	int IGNORE = Integer.MIN_VALUE;
+
+	/**
+	 * Returns the attribute of the spans created by the tag.
+	 *
+	 * @return Attribute of the tag
+	 */
+	TextAttribute getAttribute();
+
+	/**
+	 * Parses the argument of an opening tag.
+	 *
+	 * @param argument	Argument of the tag, null, if the tag has none
+	 * @return Value of the attribute inside of the span
+	 * @throws IllegalArgumentException	If the argument is not valid, the tag is
+	 *                                  then drawn as text
+	 */
+	int parseValue(String argument) throws IllegalArgumentException;
+
+	/**
+	 * Returns the value of a closing tag without an opening tag. The value lasts
+	 * until the end of the text.
+	 *
+	 * @return Value of the attribute, or {@link #IGNORE}
+	 */
+	default int getClosingValue() {
+		return IGNORE;
+	}
+}
@@ -0,0 +1,142 @@
+package vv3ird.populatecard.data.text;
+
+import java.awt.Color;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the markup tags understood by the {@link MarkupTokenizer}. By
+ * default the following tags are registered:
+ * <ul>
+ * <li>&lt;b&gt;bold&lt;/b&gt;</li>
+ * <li>&lt;i&gt;italic&lt;/i&gt;</li>
+ * <li>&lt;sc&gt;Small Caps&lt;/sc&gt;</li>
+ * <li>&lt;color=#ff0000&gt;red&lt;/color&gt;</li>
+ * <li>&lt;size=12&gt;12 point&lt;/size&gt;</li>
+ * <li>&lt;sym&gt;name&lt;/sym&gt; for inline symbols</li>
+ * </ul>
+ * Tag names are case sensitive. Further tags can be registered for the
+ * existing attributes, e.g. &lt;strong&gt; for bold text.
+ *
+ * @author VV3IRD
+ *
+ */
+public class TagRegistry {
+
+	private static final TagRegistry defaultRegistry = createDefault();
+
+	private final Map<String, TagHandler> handlers = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the registry used for all card texts.
+	 *
+	 * @return Default registry
+	 */
+	public static TagRegistry getDefault() {
+		return defaultRegistry;
+	}
+
+	/**
+	 * Registers a tag. Texts already tokenized are tokenized again.
+	 *
+	 * @param name		Name of the tag, letters only
+	 * @param handler	Handler of the tag
+	 */
+	public void register(String name, TagHandler handler) {
+		for (int i = 0; i < name.length(); i++) {
+			if (!Character.isLetter(name.charAt(i)))
+				throw new IllegalArgumentException("Invalid tag name: " + name);
+		}
+		handlers.put(name, handler);
+		MarkupTokenizer.clearCache();
+	}
+
+	/**
+	 * Returns the handler of a tag.
+	 *
+	 * @param name	Name of the tag
+	 * @return Handler, or null, if the tag is not registered
+	 */
+	public TagHandler get(String name) {
+		return handlers.get(name);
+	}
+
+	private static TagRegistry createDefault() {
+		TagRegistry registry = new TagRegistry();
+		registry.handlers.put("b", new FlagTag(TextAttribute.BOLD));
+		registry.handlers.put("i", new FlagTag(TextAttribute.ITALIC));
+		registry.handlers.put("sc", new FlagTag(TextAttribute.SMALL_CAPS));
+		registry.handlers.put("color", new TagHandler() {
+			@Override
+			public TextAttribute getAttribute() {
+				return TextAttribute.COLOR;
+			}
+
+			@Override
+			public int parseValue(String argument) {
+				if (argument == null)
+					throw new IllegalArgumentException("Color missing");
+				return Color.decode(argument).getRGB();
+			}
+		});
+		registry.handlers.put("size", new TagHandler() {
+			@Override
+			public TextAttribute getAttribute() {
+				return TextAttribute.SIZE;
+			}
+
+			@Override
+			public int parseValue(String argument) {
+				if (argument == null)
+					throw new IllegalArgumentException("Size missing");
+				int size = Integer.parseInt(argument);
+				if (size <= 0)
+					throw new IllegalArgumentException("Invalid size: " + size);
+				return size;
+			}
+		});
+		registry.handlers.put("sym", new TagHandler() {
+			@Override
+			public TextAttribute getAttribute() {
+				return TextAttribute.SYMBOL;
+			}
+
+			@Override
+			public int parseValue(String argument) {
+				if (argument != null)
+					throw new IllegalArgumentException("Unexpected argument: " + argument);
+				return 1;
+			}
+		});
+		return registry;
+	}
+
+	/**
+	 * Tag switching a flag on, a closing tag without opening tag switches it off.
+	 */
+	private static class FlagTag implements TagHandler {
+
+		private final TextAttribute attribute;
+
+		private FlagTag(TextAttribute attribute) {
+			this.attribute = attribute;
+		}
+
+		@Override
+		public TextAttribute getAttribute() {
+			return attribute;
+		}
+
+		@Override
+		public int parseValue(String argument) {
+			if (argument != null)
+				throw new IllegalArgumentException("Unexpected argument: " + argument);
+			return 1;
+		}
+
+		@Override
+		public int getClosingValue() {
+			return 0;
+		}
+	}
+}
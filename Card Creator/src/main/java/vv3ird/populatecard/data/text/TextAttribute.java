@@ -0,0 +1,58 @@
+package vv3ird.populatecard.data.text;
+
+/**
+ * Attributes of the spans of a {@link TokenStream}. The value of a span is an
+ * int, its meaning depends on the attribute.
+ *
+ * @author VV3IRD
+ *
+ */
+public enum TextAttribute {
+
+	/**
+	 * Bold text, 1 for bold, 0 for plain
+	 */
+	BOLD(false),
+
+	/**
+	 * Italic text, 1 for italic, 0 for plain
+	 */
+	ITALIC(false),
+
+	/**
+	 * Small capitals, 1 to draw lower case letters as smaller capitals, 0 for
+	 * normal text
+	 */
+	SMALL_CAPS(false),
+
+	/**
+	 * Text color as RGB value
+	 */
+	COLOR(false),
+
+	/**
+	 * Font size in points
+	 */
+	SIZE(false),
+
+	/**
+	 * Inline symbol, the text inside of the tag is the name of the symbol
+	 */
+	SYMBOL(true);
+
+	private final boolean inline;
+
+	private TextAttribute(boolean inline) {
+		this.inline = inline;
+	}
+
+	/**
+	 * Returns if the text inside of a tag with this attribute is not drawn as
+	 * text, but as a single object.
+	 *
+	 * @return <code>true</code> if the content of the tag is a single object
+	 */
+	public boolean isInline() {
+		return inline;
+	}
+}
@@ -0,0 +1,313 @@
+package vv3ird.populatecard.data.text;
+
+import java.util.Arrays;
+
+/**
+ * Card text broken down into tokens by the {@link MarkupTokenizer}. Every token
+ * has a type and a range of characters in the text, the tokens are stored in
+ * parallel arrays, so a token stream consists of a handful of objects,
+ * regardless of the length of the text.<br>
+ * The stream is a sequence of paragraphs, each starting with a
+ * {@link #PARAGRAPH} token. A paragraph contains either a single
+ * {@link #IMAGE}, or words separated by {@link #SPACE} tokens. Words consist
+ * of {@link #TEXT}, {@link #TAB}, {@link #SYMBOL} and span tokens.<br>
+ * Styles are spans, ranges of the text with an attribute and a value. They
+ * refer to the original text, nothing is copied. A span is opened and closed by
+ * a {@link #SPAN_START} and a {@link #SPAN_END} token, spans that are not
+ * closed last until the end of the text. When a span ends, its attribute
+ * returns to the value of the innermost span with the same attribute that is
+ * still open, its outer span, or to the default value, if there is none.<br>
+ * Token streams are immutable and can be shared by all threads.
+ *
+ * @author VV3IRD
+ *
+ */
+public class TokenStream {
+
+	/**
+	 * Characters to be drawn
+	 */
+	public static final int TEXT = 0;
+
+	/**
+	 * A single space, separates words
+	 */
+	public static final int SPACE = 1;
+
+	/**
+	 * A tab, either from the text or the indentation of a paragraph. Tabs
+	 * indenting a paragraph have no characters in the text.
+	 */
+	public static final int TAB = 2;
+
+	/**
+	 * Start of a span, the value of the token is the index of the span
+	 */
+	public static final int SPAN_START = 3;
+
+	/**
+	 * End of a span, the value of the token is the index of the span
+	 */
+	public static final int SPAN_END = 4;
+
+	/**
+	 * Inline symbol, the range covers the name of the symbol
+	 */
+	public static final int SYMBOL = 5;
+
+	/**
+	 * Start of a paragraph
+	 */
+	public static final int PARAGRAPH = 6;
+
+	/**
+	 * Base64 encoded image, the range only covers the encoded data
+	 */
+	public static final int IMAGE = 7;
+
+	private final char[] text;
+
+	private int[] types;
+
+	private int[] starts;
+
+	private int[] ends;
+
+	private int[] values;
+
+	private int size = 0;
+
+	private TextAttribute[] spanAttributes = new TextAttribute[4];
+
+	private int[] spanValues = new int[4];
+
+	private int[] spanStarts = new int[4];
+
+	private int[] spanEnds = new int[4];
+
+	private int[] spanOuters = new int[4];
+
+	private int[] spanOpenTokens = new int[4];
+
+	private int[] spanCloseTokens = new int[4];
+
+	private int spans = 0;
+
+	TokenStream(char[] text) {
+		this.text = text;
+		int capacity = Math.max(8, text.length / 4);
+		this.types = new int[capacity];
+		this.starts = new int[capacity];
+		this.ends = new int[capacity];
+		this.values = new int[capacity];
+	}
+
+	void add(int type, int start, int end) {
+		add(type, start, end, 0);
+	}
+
+	void add(int type, int start, int end, int value) {
+		if (size == types.length) {
+			int capacity = size * 2;
+			types = Arrays.copyOf(types, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		types[size] = type;
+		starts[size] = start;
+		ends[size] = end;
+		values[size] = value;
+		size++;
+	}
+
+	/**
+	 * Opens a span and adds its {@link #SPAN_START} token.
+	 *
+	 * @param attribute	Attribute of the span
+	 * @param value		Value of the attribute inside of the span
+	 * @param tagStart	Index of the first character of the opening tag
+	 * @param tagEnd	Index after the last character of the opening tag
+	 * @return Index of the span
+	 */
+	int openSpan(TextAttribute attribute, int value, int tagStart, int tagEnd) {
+		if (spans == spanValues.length) {
+			int capacity = spans * 2;
+			spanAttributes = Arrays.copyOf(spanAttributes, capacity);
+			spanValues = Arrays.copyOf(spanValues, capacity);
+			spanStarts = Arrays.copyOf(spanStarts, capacity);
+			spanEnds = Arrays.copyOf(spanEnds, capacity);
+			spanOuters = Arrays.copyOf(spanOuters, capacity);
+			spanOpenTokens = Arrays.copyOf(spanOpenTokens, capacity);
+			spanCloseTokens = Arrays.copyOf(spanCloseTokens, capacity);
+		}
+		spanAttributes[spans] = attribute;
+		spanValues[spans] = value;
+		spanStarts[spans] = tagEnd;
+		spanEnds[spans] = text.length;
+		spanOuters[spans] = -1;
+		spanOpenTokens[spans] = size;
+		spanCloseTokens[spans] = -1;
+		add(SPAN_START, tagStart, tagEnd, spans);
+		return spans++;
+	}
+
+	/**
+	 * Closes a span and adds its {@link #SPAN_END} token.
+	 *
+	 * @param span		Index of the span
+	 * @param tagStart	Index of the first character of the closing tag
+	 * @param tagEnd	Index after the last character of the closing tag
+	 * @param outer		Index of the span that applies after this one, or -1
+	 */
+	void closeSpan(int span, int tagStart, int tagEnd, int outer) {
+		spanEnds[span] = tagStart;
+		spanOuters[span] = outer;
+		spanCloseTokens[span] = size;
+		add(SPAN_END, tagStart, tagEnd, span);
+	}
+
+	/**
+	 * Releases the unused capacity of the arrays, after the last token has been
+	 * added.
+	 */
+	void trim() {
+		types = Arrays.copyOf(types, size);
+		starts = Arrays.copyOf(starts, size);
+		ends = Arrays.copyOf(ends, size);
+		values = Arrays.copyOf(values, size);
+		for (int span = 0; span < spans; span++) {
+			if (spanCloseTokens[span] < 0)
+				spanCloseTokens[span] = size;
+		}
+	}
+
+	/**
+	 * Returns the characters of the text. The array must not be modified.
+	 *
+	 * @return Characters of the text the tokens refer to
+	 */
+	public char[] getText() {
+		return text;
+	}
+
+	/**
+	 * Returns the number of tokens.
+	 *
+	 * @return Number of tokens
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getType(int token) {
+		return types[token];
+	}
+
+	public int getStart(int token) {
+		return starts[token];
+	}
+
+	public int getEnd(int token) {
+		return ends[token];
+	}
+
+	/**
+	 * Returns the value of a token, the index of the span for span tokens.
+	 *
+	 * @param token	Index of the token
+	 * @return Value of the token
+	 */
+	public int getValue(int token) {
+		return values[token];
+	}
+
+	/**
+	 * Returns the number of spans.
+	 *
+	 * @return Number of spans
+	 */
+	public int getSpanCount() {
+		return spans;
+	}
+
+	public TextAttribute getSpanAttribute(int span) {
+		return spanAttributes[span];
+	}
+
+	public int getSpanValue(int span) {
+		return spanValues[span];
+	}
+
+	/**
+	 * Returns the index of the first character inside of a span.
+	 *
+	 * @param span	Index of the span
+	 * @return Index of the character following the opening tag
+	 */
+	public int getSpanStart(int span) {
+		return spanStarts[span];
+	}
+
+	/**
+	 * Returns the end of a span.
+	 *
+	 * @param span	Index of the span
+	 * @return Index of the closing tag, or the length of the text, if the span is
+	 *         not closed
+	 */
+	public int getSpanEnd(int span) {
+		return spanEnds[span];
+	}
+
+	/**
+	 * Returns the span whose value applies after a span ends.
+	 *
+	 * @param span	Index of the span
+	 * @return Index of the innermost span with the same attribute still open at
+	 *         the end of the span, or -1, if the default value applies
+	 */
+	public int getSpanOuter(int span) {
+		return spanOuters[span];
+	}
+
+	/**
+	 * Returns the innermost span of an attribute, that is open at the given
+	 * token.
+	 *
+	 * @param token		Index of a token
+	 * @param attribute	Attribute of the span
+	 * @return Index of the span, or -1, if no span of the attribute is open
+	 */
+	public int getOpenSpan(int token, TextAttribute attribute) {
+		for (int span = spans - 1; span >= 0; span--) {
+			if (spanAttributes[span] == attribute && spanOpenTokens[span] < token && token <= spanCloseTokens[span])
+				return span;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the characters of a token as String.
+	 *
+	 * @param token	Index of the token
+	 * @return Characters of the token
+	 */
+	public String getString(int token) {
+		return new String(text, starts[token], ends[token] - starts[token]);
+	}
+
+	/**
+	 * Returns the end of the paragraph the given token belongs to.
+	 *
+	 * @param token	Index of a token of the paragraph
+	 * @return Index of the next {@link #PARAGRAPH} token, or {@link #size()}, if
+	 *         it is the last paragraph
+	 */
+	public int getParagraphEnd(int token) {
+		int t = token;
+		while (t < size && types[t] != PARAGRAPH)
+			t++;
+		return t;
+	}
+}
@@ -23,7 +23,9 @@ import javax.swing.SpinnerNumberModel;
 import javax.swing.SwingConstants;
 
 import vv3ird.populatecard.CardCreator;
+import vv3ird.populatecard.control.VirtualThreads;
 import vv3ird.populatecard.data.ParallelProcessing;
+import vv3ird.populatecard.data.RenderQuality;
 
 /**
  * GUI to change the configuration settings for the project.
@@ -45,6 +47,12 @@ public class JConfigFrame extends JDialog {
 	private JRadioButton rbPPCustom;
 	private JRadioButton rbPPCpuMinus1;
 	private JRadioButton rbPPSingleProcess;
+	private JRadioButton rbPPVirtualThreadIo;
+	private JRadioButton rbPPAdaptive;
+	private JSpinner spEncodeThreads;
+	private JSpinner spWriteThreads;
+	private JComboBox<RenderQuality> cbRenderQuality;
+	private JSpinner spRenderScale;
 
 	/**
 	 * Create the frame.
@@ -54,7 +62,7 @@ public class JConfigFrame extends JDialog {
 		super(parent, "Configuration", true);
 		setTitle("Configuration");
 		setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-		setBounds((int)parent.getBounds().getX()+50, (int)parent.getBounds().getY()+50, 450, 300);
+		setBounds((int)parent.getBounds().getX()+50, (int)parent.getBounds().getY()+50, 450, 405);
 		contentPane = new JPanel();
 		contentPane.setToolTipText("");
 		contentPane.setBorder(null);
@@ -164,6 +172,123 @@ public class JConfigFrame extends JDialog {
 		Component horizontalGlue_9 = Box.createHorizontalGlue();
 		horizontalBox_10.add(horizontalGlue_9);
 		
+		Box hbPPVirtualThreadIo = Box.createHorizontalBox();
+		pnGeneralConfig.add(hbPPVirtualThreadIo);
+		
+		Component rigidArea_27 = Box.createRigidArea(new Dimension(5, 20));
+		hbPPVirtualThreadIo.add(rigidArea_27);
+		
+		Component rigidArea_28 = Box.createRigidArea(new Dimension(60, 20));
+		hbPPVirtualThreadIo.add(rigidArea_28);
+		
+		rbPPVirtualThreadIo = new JRadioButton("CPU processes, virtual threads for I/O");
+		rbPPVirtualThreadIo.setToolTipText(VirtualThreads.isSupported() ? "Reading media and writing cards runs on virtual threads"
+				: "Virtual threads need Java 21, a pool of platform threads is used for I/O instead");
+		hbPPVirtualThreadIo.add(rbPPVirtualThreadIo);
+		
+		Component horizontalGlue_12 = Box.createHorizontalGlue();
+		hbPPVirtualThreadIo.add(horizontalGlue_12);
+		
+		Box hbPPAdaptive = Box.createHorizontalBox();
+		pnGeneralConfig.add(hbPPAdaptive);
+		
+		Component rigidArea_29 = Box.createRigidArea(new Dimension(5, 20));
+		hbPPAdaptive.add(rigidArea_29);
+		
+		Component rigidArea_30 = Box.createRigidArea(new Dimension(60, 20));
+		hbPPAdaptive.add(rigidArea_30);
+		
+		rbPPAdaptive = new JRadioButton("Adaptive");
+		rbPPAdaptive.setToolTipText("Tunes the number of threads while drawing cards and remembers the best value");
+		hbPPAdaptive.add(rbPPAdaptive);
+		
+		Component horizontalGlue_13 = Box.createHorizontalGlue();
+		hbPPAdaptive.add(horizontalGlue_13);
+		
+		Box hbPipelineThreads = Box.createHorizontalBox();
+		pnGeneralConfig.add(hbPipelineThreads);
+		
+		Component rigidArea_23 = Box.createRigidArea(new Dimension(65, 20));
+		hbPipelineThreads.add(rigidArea_23);
+		
+		JLabel lblEncodeThreads = new JLabel("Encode:");
+		lblEncodeThreads.setToolTipText("Threads used to PNG encode the cards (0 = automatic)");
+		hbPipelineThreads.add(lblEncodeThreads);
+		
+		Component rigidArea_24 = Box.createRigidArea(new Dimension(5, 20));
+		hbPipelineThreads.add(rigidArea_24);
+		
+		spEncodeThreads = new JSpinner();
+		spEncodeThreads.setPreferredSize(new Dimension(50, 20));
+		spEncodeThreads.setMinimumSize(new Dimension(50, 20));
+		spEncodeThreads.setMaximumSize(new Dimension(50, 20));
+		spEncodeThreads.setModel(new SpinnerNumberModel(0, 0, 96, 1));
+		hbPipelineThreads.add(spEncodeThreads);
+		
+		Component rigidArea_25 = Box.createRigidArea(new Dimension(10, 20));
+		hbPipelineThreads.add(rigidArea_25);
+		
+		JLabel lblWriteThreads = new JLabel("Write:");
+		lblWriteThreads.setToolTipText("Threads used to write the cards to disk (0 = automatic)");
+		hbPipelineThreads.add(lblWriteThreads);
+		
+		Component rigidArea_26 = Box.createRigidArea(new Dimension(5, 20));
+		hbPipelineThreads.add(rigidArea_26);
+		
+		spWriteThreads = new JSpinner();
+		spWriteThreads.setPreferredSize(new Dimension(50, 20));
+		spWriteThreads.setMinimumSize(new Dimension(50, 20));
+		spWriteThreads.setMaximumSize(new Dimension(50, 20));
+		spWriteThreads.setModel(new SpinnerNumberModel(0, 0, 96, 1));
+		hbPipelineThreads.add(spWriteThreads);
+		
+		Component horizontalGlue_11 = Box.createHorizontalGlue();
+		hbPipelineThreads.add(horizontalGlue_11);
+		
+		Component verticalStrut_7 = Box.createVerticalStrut(5);
+		pnGeneralConfig.add(verticalStrut_7);
+		
+		Box hbRenderQuality = Box.createHorizontalBox();
+		pnGeneralConfig.add(hbRenderQuality);
+		
+		Component rigidArea_31 = Box.createRigidArea(new Dimension(5, 20));
+		hbRenderQuality.add(rigidArea_31);
+		
+		JLabel lblRenderQuality = new JLabel("Render Quality");
+		lblRenderQuality.setFont(new Font("Tahoma", Font.ITALIC, 11));
+		lblRenderQuality.setToolTipText("Draft renders fast proofs, final renders with the best quality for print");
+		hbRenderQuality.add(lblRenderQuality);
+		
+		Component rigidArea_32 = Box.createRigidArea(new Dimension(20, 20));
+		hbRenderQuality.add(rigidArea_32);
+		
+		cbRenderQuality = new JComboBox<>(RenderQuality.values());
+		cbRenderQuality.setPreferredSize(new Dimension(150, 20));
+		cbRenderQuality.setMinimumSize(new Dimension(150, 20));
+		cbRenderQuality.setMaximumSize(new Dimension(150, 20));
+		cbRenderQuality.setSelectedItem(RenderQuality.NORMAL);
+		hbRenderQuality.add(cbRenderQuality);
+		
+		Component rigidArea_33 = Box.createRigidArea(new Dimension(10, 20));
+		hbRenderQuality.add(rigidArea_33);
+		
+		JLabel lblRenderScale = new JLabel("Scale:");
+		lblRenderScale.setToolTipText("Factor the cards are drawn with, relative to the templates (0 = half for drafts, otherwise 1)");
+		hbRenderQuality.add(lblRenderScale);
+		
+		Component rigidArea_34 = Box.createRigidArea(new Dimension(5, 20));
+		hbRenderQuality.add(rigidArea_34);
+		
+		spRenderScale = new JSpinner();
+		spRenderScale.setPreferredSize(new Dimension(50, 20));
+		spRenderScale.setMinimumSize(new Dimension(50, 20));
+		spRenderScale.setMaximumSize(new Dimension(50, 20));
+		spRenderScale.setModel(new SpinnerNumberModel(0.0, 0.0, 8.0, 0.25));
+		hbRenderQuality.add(spRenderScale);
+		
+		Component horizontalGlue_14 = Box.createHorizontalGlue();
+		hbRenderQuality.add(horizontalGlue_14);
+		
 		Component verticalGlue = Box.createVerticalGlue();
 		contentPane.add(verticalGlue);
 		
@@ -188,8 +313,11 @@ public class JConfigFrame extends JDialog {
 					CardCreator.setCsvDelimiter(delim);
 					CardCreator.setCsvQuote(quote);
 					CardCreator.setCsvRecordSeparator(recordSep);
-					ParallelProcessing pp = rbPPCpuMinus1.isSelected() ? ParallelProcessing.CPU_MINUS_ONE : rbPPSingleProcess.isSelected() ? ParallelProcessing.SINGLE_THREAD : ParallelProcessing.CUSTOM;
+					ParallelProcessing pp = rbPPCpuMinus1.isSelected() ? ParallelProcessing.CPU_MINUS_ONE : rbPPSingleProcess.isSelected() ? ParallelProcessing.SINGLE_THREAD : rbPPVirtualThreadIo.isSelected() ? ParallelProcessing.VIRTUAL_THREAD_IO : rbPPAdaptive.isSelected() ? ParallelProcessing.ADAPTIVE : ParallelProcessing.CUSTOM;
 					CardCreator.setParallelProcessing(pp, (Integer)spPPThreads.getValue());
+					CardCreator.setPipelineThreads((Integer)spEncodeThreads.getValue(), (Integer)spWriteThreads.getValue());
+					CardCreator.setRenderQuality((RenderQuality) cbRenderQuality.getSelectedItem());
+					CardCreator.setRenderScale(((Number) spRenderScale.getValue()).doubleValue());
 					JConfigFrame.this.setVisible(false);
 					JConfigFrame.this.dispose();
 				}
@@ -219,6 +347,8 @@ public class JConfigFrame extends JDialog {
 		bg.add(rbPPCpuMinus1);
 		bg.add(rbPPSingleProcess);
 		bg.add(rbPPCustom);
+		bg.add(rbPPVirtualThreadIo);
+		bg.add(rbPPAdaptive);
 		
 		Component verticalStrut_5 = Box.createVerticalStrut(5);
 		pnGeneralConfig.add(verticalStrut_5);
@@ -334,6 +464,10 @@ public class JConfigFrame extends JDialog {
 		horizontalBox_6.add(horizontalGlue_3);
 		
 		if(CardCreator.hasCurrentProject()) {
+			spEncodeThreads.setValue(CardCreator.getCustomEncodeThreads());
+			spWriteThreads.setValue(CardCreator.getCustomWriteThreads());
+			cbRenderQuality.setSelectedItem(CardCreator.getRenderQuality());
+			spRenderScale.setValue(CardCreator.getRenderScaleSetting());
 			switch (CardCreator.getProcessingMode()) {
 			case CPU_MINUS_ONE:
 				rbPPCpuMinus1.setSelected(true);
@@ -341,6 +475,12 @@ public class JConfigFrame extends JDialog {
 			case SINGLE_THREAD:
 				rbPPSingleProcess.setSelected(true);
 				break;
+			case VIRTUAL_THREAD_IO:
+				rbPPVirtualThreadIo.setSelected(true);
+				break;
+			case ADAPTIVE:
+				rbPPAdaptive.setSelected(true);
+				break;
 			case CUSTOM:
 				rbPPCustom.setSelected(true);
 				spPPThreads.setValue(CardCreator.getCustomParallelProcessingThreads());
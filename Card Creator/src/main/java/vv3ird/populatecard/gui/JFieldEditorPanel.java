@@ -20,6 +20,7 @@ import vv3ird.populatecard.CardCreator;
 import vv3ird.populatecard.data.Field;
 import vv3ird.populatecard.data.Field.CardSide;
 import vv3ird.populatecard.data.Field.FieldType;
+import vv3ird.populatecard.data.Field.VerticalTextAlignment;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 
@@ -35,10 +36,12 @@ public class JFieldEditorPanel extends JPanel {
 	private JSpinner spinnerFontSize;
 	private JComboBox<String> cbFont;
 	private JComboBox<Field.FieldType> cbFieldType;
+	private JComboBox<Field.VerticalTextAlignment> cbVerticalAlignment;
 	private JComboBox<Field.CardSide> cbCardSide;
 	private JTextField tfName;
 	private JCheckBox chbxIndented;
 	private JCheckBox chbxResize;
+	private JCheckBox chbxFit;
 	private JCheckBox chbxJS;
 	private JTextArea txtJavaScript;
 
@@ -194,6 +197,30 @@ public class JFieldEditorPanel extends JPanel {
 		cbFieldType.setMaximumSize(new Dimension(120, 20));
 		horizontalBox_3.add(cbFieldType);
 		
+		Component verticalStrut_5 = Box.createVerticalStrut(5);
+		add(verticalStrut_5);
+		
+		Box horizontalBox_10 = Box.createHorizontalBox();
+		add(horizontalBox_10);
+		
+		Component horizontalGlue_10 = Box.createHorizontalGlue();
+		horizontalBox_10.add(horizontalGlue_10);
+		
+		Component rigidArea_24 = Box.createRigidArea(new Dimension(70, 20));
+		horizontalBox_10.add(rigidArea_24);
+		
+		JLabel lblVertical = new JLabel("Vertical:");
+		horizontalBox_10.add(lblVertical);
+		
+		Component rigidArea_25 = Box.createRigidArea(new Dimension(14, 20));
+		horizontalBox_10.add(rigidArea_25);
+		cbVerticalAlignment = new JComboBox<>(Field.VerticalTextAlignment.values());
+		cbVerticalAlignment.setSelectedItem(field.getVerticalAlignment());
+		cbVerticalAlignment.setAlignmentX(Component.LEFT_ALIGNMENT);
+		cbVerticalAlignment.setPreferredSize(new Dimension(120, 20));
+		cbVerticalAlignment.setMaximumSize(new Dimension(120, 20));
+		horizontalBox_10.add(cbVerticalAlignment);
+		
 		Component verticalStrut_1 = Box.createVerticalStrut(5);
 		add(verticalStrut_1);
 		
@@ -289,6 +316,24 @@ public class JFieldEditorPanel extends JPanel {
 		Component rigidArea_21 = Box.createRigidArea(new Dimension(45, 20));
 		horizontalBox_8.add(rigidArea_21);
 		
+		Box horizontalBox_11 = Box.createHorizontalBox();
+		add(horizontalBox_11);
+		
+		Component horizontalGlue_11 = Box.createHorizontalGlue();
+		horizontalBox_11.add(horizontalGlue_11);
+		
+		Component rigidArea_26 = Box.createRigidArea(new Dimension(70, 20));
+		horizontalBox_11.add(rigidArea_26);
+
+		chbxFit = new JCheckBox("Shrink text to fit height");
+		chbxFit.setPreferredSize(new Dimension(130, 20));
+		chbxFit.setMaximumSize(new Dimension(130, 20));
+		chbxFit.setSelected(field.isFitText());
+		horizontalBox_11.add(chbxFit);
+		
+		Component rigidArea_27 = Box.createRigidArea(new Dimension(45, 20));
+		horizontalBox_11.add(rigidArea_27);
+		
 		Box horizontalBox_9 = Box.createHorizontalBox();
 		add(horizontalBox_9);
 		
@@ -370,6 +415,8 @@ public class JFieldEditorPanel extends JPanel {
 		FieldType type = (FieldType) cbFieldType.getSelectedItem();
 		boolean indeted = chbxIndented.isSelected();
 		boolean resize = chbxResize.isSelected();
+		boolean fit = chbxFit.isSelected();
+		VerticalTextAlignment verticalAlignment = (VerticalTextAlignment) cbVerticalAlignment.getSelectedItem();
 		// Set values
 		field.setName(name);
 		field.setFont(fontName);
@@ -382,6 +429,8 @@ public class JFieldEditorPanel extends JPanel {
 		field.setHeight(height);
 		field.setIndented(indeted);
 		field.setResizeText(resize);
+		field.setFitText(fit);
+		field.setVerticalAlignment(verticalAlignment);
 		field.setJavaScript(chbxJS.isSelected() ? txtJavaScript.getText() : null);
 		return field;
 	}
@@ -398,6 +447,8 @@ public class JFieldEditorPanel extends JPanel {
 		cbFieldType.setSelectedItem(this.field != null ? field.getType() : FieldType.TEXT_LEFT);
 		chbxIndented.setSelected(this.field != null ? field.isIndented() : true);
 		chbxResize.setSelected(this.field != null ? field.resizeText() : false);
+		chbxFit.setSelected(this.field != null ? field.isFitText() : false);
+		cbVerticalAlignment.setSelectedItem(this.field != null ? field.getVerticalAlignment() : VerticalTextAlignment.TEXT_TOP);
 		chbxJS.setSelected(this.field != null && this.field.isCalculated());
 		if (this.field != null && this.field.isCalculated())
 			txtJavaScript.setText(this.field.getJavaScript());
@@ -18,6 +18,7 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -35,6 +36,7 @@ import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.JTabbedPane;
 import javax.swing.JTree;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
@@ -46,6 +48,7 @@ import javax.swing.tree.MutableTreeNode;
 import vv3ird.populatecard.CardCreator;
 import vv3ird.populatecard.control.FieldEditor;
 import vv3ird.populatecard.control.FieldEditor.Corner;
+import vv3ird.populatecard.control.TaskScheduler;
 import vv3ird.populatecard.data.Field;
 import vv3ird.populatecard.data.Field.CardSide;
 import vv3ird.populatecard.data.FieldPackage;
@@ -81,6 +84,11 @@ public class JFieldMappingPanel extends JPanel {
 	private BufferedImage rearPreview = null;
 	
 	private boolean previewMode = false;
+	
+	/**
+	 * Incremented for every requested preview, only the latest preview is shown
+	 */
+	private volatile int previewGeneration = 0;
 
 	Dimension frontPos1 = null;
 	Dimension backPos1 = null;
@@ -757,23 +765,53 @@ public class JFieldMappingPanel extends JPanel {
 		return fields;
 	}
 
+	/**
+	 * Shows the preview of the first card or the field layout. The preview is
+	 * drawn on the interactive lane of the {@link TaskScheduler}, so it does
+	 * not block the GUI and does not wait behind running card jobs. Previews
+	 * that are outdated before they start are skipped, so while a field is
+	 * dragged only the latest state is drawn.
+	 */
 	private void updatePreviewMode() {
+		final int generation = ++previewGeneration;
 		if (previewMode) {
-			BufferedImage[] images = CardCreator.createCard(0, null, this.fields);
-			if (images != null) {
-				this.frontPreview = images[0];
-				this.rearPreview = images[1];
-			}
-			else {
-				this.frontPreview = null;
-				this.rearPreview = null;
-				this.previewMode = false;
-				this.chckbxPreview.setSelected(false);
-			}
-			if (this.frontPreview != null) {
-				pnFront.setIcon(new ImageIcon(this.frontPreview));
-				pnRear.setIcon(new ImageIcon(this.rearPreview));
-			}
+			final List<Field> previewFields = new ArrayList<>(this.fields);
+			TaskScheduler.submitInteractive(new Runnable() {
+				@Override
+				public void run() {
+					if (generation != previewGeneration)
+						return;
+					BufferedImage[] images = CardCreator.createCard(0, null, previewFields);
+					SwingUtilities.invokeLater(new Runnable() {
+						@Override
+						public void run() {
+							if (generation == previewGeneration && previewMode)
+								showPreview(images);
+						}
+					});
+				}
+			});
+		}
+		else {
+			pnFront.setIcon(new ImageIcon(this.frontBuffer2));
+			pnRear.setIcon(new ImageIcon(this.rearBuffer2));
+		}
+	}
+
+	private void showPreview(BufferedImage[] images) {
+		if (images != null) {
+			this.frontPreview = images[0];
+			this.rearPreview = images[1];
+		}
+		else {
+			this.frontPreview = null;
+			this.rearPreview = null;
+			this.previewMode = false;
+			this.chckbxPreview.setSelected(false);
+		}
+		if (this.frontPreview != null) {
+			pnFront.setIcon(new ImageIcon(this.frontPreview));
+			pnRear.setIcon(new ImageIcon(this.rearPreview));
 		}
 		else {
 			pnFront.setIcon(new ImageIcon(this.frontBuffer2));
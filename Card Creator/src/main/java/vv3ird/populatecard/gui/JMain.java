@@ -1,7 +1,6 @@
 package vv3ird.populatecard.gui;
 
 import java.awt.BorderLayout;
-import java.awt.Font;
 import java.awt.FontFormatException;
 import java.awt.Graphics2D;
 import java.awt.Image;
@@ -89,6 +88,7 @@ public class JMain extends JFrame {
 	private JMenuItem mntmMapFields;
 	private JMenuItem mntmImportCmFile;
 	private JMenuItem mntmImportFont;
+	private JMenuItem mntmImportSymbol;
 	private JTextField tfFileNameTemplate;
 	private JButton btnI;
 	private JButton btnCreateCards;
@@ -99,6 +99,7 @@ public class JMain extends JFrame {
 	private JMenuItem mntmImportCsv2;
 	private JMenuItem mntmSaveProject;
 	private JMenuItem mntmMapCsv;
+	private JMenuItem mntmContactSheets;
 	private JMenuItem mntmConfiguration;
 
 	/**
@@ -157,7 +158,7 @@ public class JMain extends JFrame {
 					chooser.setAcceptAllFileFilterUsed(false);
 					chooser.setDialogTitle("Choose a filename");
 					chooser.setFileFilter(
-							new FileNameExtensionFilter("CardMapperProject Files", new String[] { "cmp", "cmpz" }));
+							new FileNameExtensionFilter("CardMapperProject Files", new String[] { "cmpc", "cmp", "cmpz" }));
 					int res = chooser.showOpenDialog(JMain.this);
 					if (res == JFileChooser.APPROVE_OPTION) {
 						Path selectedProject = chooser.getSelectedFile().toPath();
@@ -219,7 +220,7 @@ public class JMain extends JFrame {
 					chooser.setAcceptAllFileFilterUsed(false);
 					chooser.setDialogTitle("Choose a filename");
 					chooser.setFileFilter(
-							new FileNameExtensionFilter("CardMapperProject Files", new String[] { "cmp", "cmpz", "zip" }));
+							new FileNameExtensionFilter("CardMapperProject Files", new String[] { "cmpc", "cmp", "cmpz", "zip" }));
 					int res = chooser.showOpenDialog(JMain.this);
 					if (res == JFileChooser.APPROVE_OPTION) {
 						TaskScheduler.addTask("Import project", new Runnable() {
@@ -268,12 +269,18 @@ public class JMain extends JFrame {
 						if (!exportFile.toString().toLowerCase().endsWith(".zip"))
 							exportFile = Paths.get(exportFile.toString()+".zip");
 						final Path exportFileFinal = exportFile;
+						int includeRes = JOptionPane.showConfirmDialog(JMain.this,
+								"Include the created cards (output folder) in the export?", "Export Project",
+								JOptionPane.YES_NO_CANCEL_OPTION);
+						if (includeRes != JOptionPane.YES_OPTION && includeRes != JOptionPane.NO_OPTION)
+							return;
+						final boolean includeOutput = includeRes == JOptionPane.YES_OPTION;
 						TaskScheduler.addTask("Project export",
 							new Runnable() {
 								public void run() {
 									try {
 									lblStatus.setText("Exporting project \"" + CardCreator.getCurrentProjecttName() + "\"");
-									Path exP = CardCreator.exportProject(exportFileFinal);
+									Path exP = CardCreator.exportProject(exportFileFinal, includeOutput);
 									if (exP != null) {
 										lblStatus.setText("Sucessfully exported project");
 										Desktop.getDesktop().open(exportFileFinal.getParent().toFile());
@@ -415,6 +422,32 @@ public class JMain extends JFrame {
 		mnFonts.add(mnDeleteFont);
 		mnFonts.addSeparator();
 
+		JMenu mnSymbols = new JMenu("Symbols");
+		menuBar.add(mnSymbols);
+
+		mntmImportSymbol = new JMenuItem("Import Symbol");
+		mntmImportSymbol.setEnabled(false);
+		mntmImportSymbol.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				JFileChooser chooser = new JFileChooser(System.getProperty("user.dir"));
+				chooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+				chooser.setAcceptAllFileFilterUsed(false);
+				chooser.setDialogTitle("Choose a symbol, it is used as <sym>filename</sym>");
+				chooser.setFileFilter(new FileNameExtensionFilter("Image Files", new String[] { "png", "jpg", "jpeg", "gif", "bmp" }));
+				int res = chooser.showOpenDialog(JMain.this);
+				if (res == JFileChooser.APPROVE_OPTION) {
+					try {
+						String symbolName = CardCreator.importSymbol(chooser.getSelectedFile().toPath());
+						lblStatus.setText("Successfully imported symbol <sym>" + symbolName + "</sym>");
+					} catch (IOException e2) {
+						lblStatus.setText("Error importing symbol: " + e2.getMessage());
+						e2.printStackTrace();
+					}
+				}
+			}
+		});
+		mnSymbols.add(mntmImportSymbol);
+
 		JMenu mnCsv = new JMenu("CSV");
 		menuBar.add(mnCsv);
 
@@ -457,6 +490,7 @@ public class JMain extends JFrame {
 									}
 									btnCreateCards.setEnabled(true);
 									mntmMapCsv.setEnabled(true);
+									mntmContactSheets.setEnabled(true);
 								} catch (IOException e) {
 									lblStatus.setText("An Error occured while importing the csv-file " + selectedCSV.getFileName().toString());
 									e.printStackTrace();
@@ -512,6 +546,7 @@ public class JMain extends JFrame {
 									}
 									btnCreateCards.setEnabled(true);
 									mntmMapCsv.setEnabled(true);
+									mntmContactSheets.setEnabled(true);
 								} catch (IOException e) {
 									lblStatus.setText("An Error occured while importing the csv-file " + selectedCSV.getFileName().toString());
 									e.printStackTrace();
@@ -553,6 +588,28 @@ public class JMain extends JFrame {
 			}
 		});
 		mnCsv.add(mntmMapCsv);
+
+		mntmContactSheets = new JMenuItem("Draw contact sheets");
+		mntmContactSheets.setToolTipText("Draws all cards as thumbnails on overview pages");
+		mntmContactSheets.setEnabled(false);
+		mntmContactSheets.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				TaskScheduler.addTask("Draw contact sheets", new Runnable() {
+					@Override
+					public void run() {
+						try {
+							List<Path> pages = CardCreator.drawContactSheets(lblStatus);
+							if (!pages.isEmpty())
+								Desktop.getDesktop().open(CardCreator.getContactSheetFolder().toFile());
+						} catch (IOException e1) {
+							lblStatus.setText("Error drawing contact sheets: " + e1.getMessage());
+							e1.printStackTrace();
+						}
+					}
+				}, lblStatus, true);
+			}
+		});
+		mnCsv.add(mntmContactSheets);
 		contentPane = new JPanel();
 		contentPane.setBorder(new EmptyBorder(5, 5, 5, 5));
 		setContentPane(contentPane);
@@ -910,6 +967,7 @@ public class JMain extends JFrame {
 		JMain.this.mntmImportCsv2.setEnabled(true);
 		JMain.this.mntmMapFields.setEnabled(true);
 		JMain.this.mntmImportFont.setEnabled(true);
+		JMain.this.mntmImportSymbol.setEnabled(true);
 		JMain.this.mntmExportProject.setEnabled(true);
 		JMain.this.mntmConfiguration.setEnabled(true);
 		JMain.this.tfFileNameTemplate.setEnabled(true);
@@ -917,6 +975,7 @@ public class JMain extends JFrame {
 		if (CardCreator.getCsvHeader() != null) {
 			JMain.this.btnCreateCards.setEnabled(true);
 			JMain.this.mntmMapCsv.setEnabled(true);
+			JMain.this.mntmContactSheets.setEnabled(true);
 		}
 		populateDeleteFontMenu();
 		lblStatus.setText("Project opened");
@@ -933,8 +992,7 @@ public class JMain extends JFrame {
 	private void populateDeleteFontMenu() {
 		mnDeleteFont.removeAll();
 		if (CardCreator.hasCurrentProject()) {
-			Map<String, Font> fonts = CardCreator.getProjectFonts();
-			for (String fontName : fonts.keySet()) {
+			for (String fontName : CardCreator.getProjectFontNames()) {
 				populateDeleteFontMenu(fontName);
 			}
 		}
@@ -152,7 +152,8 @@ public class JTaskScheduler extends JPanel implements Runnable {
 		pnQueuedTasks.removeAll();
 		for (Task task : tasks) {
 			Box queuedTaskOne = Box.createHorizontalBox();
-			JLabel taskOneDesc = new JLabel(task.getDescription() + (task.noParallel() ? " (No parallelism)" : ""));
+			JLabel taskOneDesc = new JLabel(task.getDescription() + (task.noParallel() ? " (No parallelism)" : "")
+					+ (task.getPriority() == Task.Priority.BACKGROUND ? " (Background)" : ""));
 			queuedTaskOne.add(taskOneDesc);
 			Component hgOne = Box.createHorizontalGlue();
 			queuedTaskOne.add(hgOne);
@@ -0,0 +1,692 @@
+package vv3ird.populatecard.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Exports project folders to zip archives and extracts them again.<br>
+ * On export the files are compressed in parallel, each with its own
+ * {@link Deflater}, while a single writer appends the finished entries to the
+ * archive in order. Files in formats that are already compressed (images,
+ * archives, project containers and fonts) are stored without compressing them
+ * again. Only a few entries are prepared ahead of the writer, small files in
+ * memory and large files in temporary files, so the memory use does not depend
+ * on the project size.<br>
+ * Files with the same content, e.g. reprinted cards in the output folder, are
+ * only stored once. The first file is added as entry, the other files are listed
+ * in the manifest {@value #DUPLICATES_ENTRY} with the name of that entry. The
+ * content is compared by its SHA-256 hash.<br>
+ * On import the entries are extracted concurrently. Duplicates are restored as
+ * hard links to the extracted file, or as copies if the file system does not
+ * support hard links.
+ *
+ * @author VV3IRD
+ *
+ */
+public class ProjectArchiver {
+
+	/**
+	 * Name of the folder with the created cards
+	 */
+	public static final String OUTPUT_FOLDER = "output";
+
+	/**
+	 * Render cache folder, it is never exported as it is recreated when needed
+	 */
+	private static final String CACHE_FOLDER = RenderCache.FOLDER;
+
+	/**
+	 * Manifest entry mapping the names of duplicate files to the entry with their content
+	 */
+	public static final String DUPLICATES_ENTRY = ".duplicates.json";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Files up to this size are prepared in memory, larger files in a temporary file
+	 */
+	private static final long MEMORY_LIMIT = 8 * 1024 * 1024;
+
+	/**
+	 * Size and offset limit of zip archives without the zip64 extension
+	 */
+	private static final long ZIP_SIZE_LIMIT = 0xFFFFFFFFL;
+
+	/**
+	 * Entry limit of zip archives without the zip64 extension
+	 */
+	private static final int ZIP_ENTRY_LIMIT = 0xFFFF;
+
+	/**
+	 * Extensions of files that are stored without compression
+	 */
+	private static final String[] STORED_EXTENSIONS = { ".png", ".jpg", ".jpeg", ".gif", ".zip", ".gz", ".cmpz", ".cmpc",
+			".ttf", ".otf" };
+
+	/**
+	 * A file or folder of the archive
+	 */
+	private static class Entry {
+
+		private final String name;
+
+		private final Path source;
+
+		private final boolean directory;
+
+		private boolean stored;
+
+		private final int dosTime;
+
+		private long crc = 0;
+
+		private long size = 0;
+
+		private long compressedSize = 0;
+
+		private long offset = 0;
+
+		/**
+		 * SHA-256 hash and size of the content, null for folders
+		 */
+		private String contentKey = null;
+
+		/**
+		 * Prepared entry data, null if the data is in {@link #dataFile}
+		 */
+		private byte[] data = null;
+
+		/**
+		 * File with the prepared entry data, either a temporary file or the source file of a stored entry
+		 */
+		private Path dataFile = null;
+
+		private boolean temporary = false;
+
+		public Entry(String name, Path source, boolean directory, long lastModified) {
+			this.name = name;
+			this.source = source;
+			this.directory = directory;
+			this.stored = directory || isStored(name);
+			this.dosTime = toDosTime(lastModified);
+		}
+
+		/**
+		 * Releases the prepared data after the entry has been written or skipped.
+		 */
+		private void release() {
+			data = null;
+			deleteTemporary();
+		}
+
+		/**
+		 * Deletes the temporary data file. Source files are never deleted.
+		 */
+		private void deleteTemporary() {
+			if (!temporary)
+				return;
+			try {
+				Files.deleteIfExists(dataFile);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			dataFile = null;
+			temporary = false;
+		}
+	}
+
+	/**
+	 * Exports a project folder to a zip archive. An existing archive is replaced.
+	 *
+	 * @param sourceRoot	Project folder
+	 * @param zipFile		Archive to be created
+	 * @param includeOutput	Flag if the created cards in the {@value #OUTPUT_FOLDER} folder should be exported.
+	 *                      If not, only the empty folder is added.
+	 * @throws IOException	Whenever a file cannot be read or the archive cannot be written
+	 */
+	public static void export(Path sourceRoot, Path zipFile, boolean includeOutput) throws IOException {
+		long start = System.currentTimeMillis();
+		List<Entry> entries = collect(sourceRoot, includeOutput);
+		if (entries.size() > ZIP_ENTRY_LIMIT)
+			throw new IOException("Project has too many files for a zip archive (" + entries.size() + ")");
+		int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		Deque<Future<Entry>> pending = new ArrayDeque<>();
+		Map<String, String> contents = new HashMap<>();
+		Map<String, String> duplicates = new LinkedHashMap<>();
+		long bytes = 0;
+		try (ZipWriter zip = new ZipWriter(Files.newOutputStream(zipFile))) {
+			for (Entry entry : entries) {
+				pending.add(pool.submit(() -> prepare(entry)));
+				// Bounds the number of prepared entries waiting for the writer
+				while (pending.size() > threads * 2)
+					bytes += append(zip, get(pending.poll()), contents, duplicates);
+			}
+			while (!pending.isEmpty())
+				bytes += append(zip, get(pending.poll()), contents, duplicates);
+			if (!duplicates.isEmpty())
+				zip.write(createEntry(DUPLICATES_ENTRY, new Gson().toJson(duplicates).getBytes(StandardCharsets.UTF_8)));
+			zip.finish();
+		} catch (IOException | RuntimeException e) {
+			pool.shutdownNow();
+			Files.deleteIfExists(zipFile);
+			throw e;
+		} finally {
+			pool.shutdownNow();
+			// Entries that were already running can still create their temporary file, so the pool has to stop first
+			awaitTermination(pool);
+			for (Entry entry : entries) {
+				entry.deleteTemporary();
+			}
+		}
+		System.out.println(String.format("Exported %d entries (%.1f MB, %d duplicates) to %s in %.1fs",
+				entries.size() - duplicates.size(), bytes / (1024d * 1024d), duplicates.size(), zipFile.getFileName(),
+				(System.currentTimeMillis() - start) / 1000d));
+	}
+
+	/**
+	 * Waits until all workers of the pool have finished. An interrupt does not
+	 * stop the waiting, it is restored afterwards.
+	 */
+	private static void awaitTermination(ExecutorService pool) {
+		boolean interrupted = false;
+		while (!pool.isTerminated()) {
+			try {
+				pool.awaitTermination(1, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Writes an entry, unless a file with the same content has already been
+	 * written. Duplicates are only recorded.
+	 *
+	 * @return Number of bytes written for the entry data
+	 */
+	private static long append(ZipWriter zip, Entry entry, Map<String, String> contents, Map<String, String> duplicates)
+			throws IOException {
+		if (entry.contentKey != null && entry.size > 0) {
+			String original = contents.putIfAbsent(entry.contentKey, entry.name);
+			if (original != null) {
+				duplicates.put(entry.name, original);
+				entry.release();
+				return 0;
+			}
+		}
+		return zip.write(entry);
+	}
+
+	/**
+	 * Creates a stored entry for data that is not read from a file.
+	 */
+	private static Entry createEntry(String name, byte[] data) {
+		Entry entry = new Entry(name, null, false, System.currentTimeMillis());
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		entry.stored = true;
+		entry.data = data;
+		entry.crc = crc.getValue();
+		entry.size = data.length;
+		entry.compressedSize = data.length;
+		return entry;
+	}
+
+	/**
+	 * Extracts a zip archive concurrently into the given folder.
+	 *
+	 * @param zipFile		Archive to be extracted
+	 * @param targetRoot	Folder the archive is extracted to, created if it does not exist
+	 * @throws IOException	Whenever the archive cannot be read, contains entries outside of the target folder
+	 *                      or a file cannot be written
+	 */
+	public static void extract(Path zipFile, Path targetRoot) throws IOException {
+		long start = System.currentTimeMillis();
+		Path root = targetRoot.toAbsolutePath().normalize();
+		Files.createDirectories(root);
+		try (ZipFile zip = new ZipFile(zipFile.toFile(), StandardCharsets.UTF_8)) {
+			List<ZipEntry> files = new ArrayList<>();
+			List<Path> targets = new ArrayList<>();
+			Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+			while (zipEntries.hasMoreElements()) {
+				ZipEntry entry = zipEntries.nextElement();
+				String name = entry.getName();
+				while (name.startsWith("/"))
+					name = name.substring(1);
+				if (name.isEmpty() || name.equals(DUPLICATES_ENTRY))
+					continue;
+				Path target = resolve(root, name);
+				if (entry.isDirectory()) {
+					Files.createDirectories(target);
+				} else {
+					// Folders are created here, so the extracting threads do not race for them
+					Files.createDirectories(target.getParent());
+					files.add(entry);
+					targets.add(target);
+				}
+			}
+			int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			try {
+				List<Future<Object>> futures = new ArrayList<>(files.size());
+				for (int i = 0; i < files.size(); i++) {
+					ZipEntry entry = files.get(i);
+					Path target = targets.get(i);
+					futures.add(pool.submit(() -> {
+						try (InputStream in = zip.getInputStream(entry)) {
+							Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+						}
+						if (entry.getTime() != -1)
+							Files.setLastModifiedTime(target, FileTime.fromMillis(entry.getTime()));
+						return null;
+					}));
+				}
+				for (Future<Object> future : futures)
+					get(future);
+			} finally {
+				pool.shutdownNow();
+			}
+			int duplicates = restoreDuplicates(zip, root);
+			System.out.println(String.format("Extracted %d files (%d duplicates) from %s in %.1fs", files.size() + duplicates,
+					duplicates, zipFile.getFileName(), (System.currentTimeMillis() - start) / 1000d));
+		}
+	}
+
+	/**
+	 * Restores the files listed in the duplicates manifest of an archive as hard
+	 * links to the extracted files with their content. Falls back to copies if
+	 * hard links are not supported.
+	 *
+	 * @return Number of restored duplicates
+	 */
+	private static int restoreDuplicates(ZipFile zip, Path root) throws IOException {
+		ZipEntry manifest = zip.getEntry(DUPLICATES_ENTRY);
+		if (manifest == null)
+			return 0;
+		Map<String, String> duplicates = null;
+		try (InputStream in = zip.getInputStream(manifest)) {
+			duplicates = new Gson().fromJson(new String(readAll(in), StandardCharsets.UTF_8),
+					new TypeToken<Map<String, String>>() {
+					}.getType());
+		}
+		if (duplicates == null)
+			return 0;
+		boolean linksSupported = true;
+		for (Map.Entry<String, String> duplicate : duplicates.entrySet()) {
+			Path target = resolve(root, duplicate.getKey());
+			Path original = resolve(root, duplicate.getValue());
+			Files.createDirectories(target.getParent());
+			Files.deleteIfExists(target);
+			if (linksSupported) {
+				try {
+					Files.createLink(target, original);
+					continue;
+				} catch (UnsupportedOperationException | IOException e) {
+					System.out.println("Hard links are not supported, copying duplicates: " + e.getMessage());
+					linksSupported = false;
+				}
+			}
+			Files.copy(original, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+		return duplicates.size();
+	}
+
+	/**
+	 * Resolves an entry name against the target folder, rejecting names outside of it.
+	 */
+	private static Path resolve(Path root, String name) throws IOException {
+		while (name.startsWith("/"))
+			name = name.substring(1);
+		Path target = root.resolve(name).normalize();
+		if (!target.startsWith(root) || target.equals(root))
+			throw new IOException("Archive entry " + name + " is outside of the project folder");
+		return target;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int read = 0;
+		while ((read = in.read(buffer)) > 0) {
+			os.write(buffer, 0, read);
+		}
+		return os.toByteArray();
+	}
+
+	/**
+	 * Lists the entries of the project folder, folders before their content.
+	 */
+	private static List<Entry> collect(Path sourceRoot, boolean includeOutput) throws IOException {
+		Path output = sourceRoot.resolve(OUTPUT_FOLDER);
+		Path cache = sourceRoot.resolve(CACHE_FOLDER);
+		List<Path> paths = null;
+		try (Stream<Path> walk = Files.walk(sourceRoot)) {
+			paths = walk.filter(p -> !p.equals(sourceRoot))
+					.filter(p -> includeOutput || !p.startsWith(output) || p.equals(output))
+					.filter(p -> !p.startsWith(cache))
+					// Leftovers of an interrupted save
+					.filter(p -> !(p.getFileName().toString().startsWith(".") && p.getFileName().toString().endsWith(".tmp")))
+					.collect(Collectors.toList());
+		}
+		List<Entry> entries = new ArrayList<>(paths.size());
+		for (Path path : paths) {
+			boolean directory = Files.isDirectory(path);
+			StringBuilder name = new StringBuilder();
+			for (Path part : sourceRoot.relativize(path)) {
+				if (name.length() > 0)
+					name.append('/');
+				name.append(part.toString());
+			}
+			if (directory)
+				name.append('/');
+			entries.add(new Entry(name.toString(), path, directory, Files.getLastModifiedTime(path).toMillis()));
+		}
+		return entries;
+	}
+
+	/**
+	 * Computes the checksum and the content hash of an entry and compresses it if
+	 * needed. Runs on the worker threads.
+	 */
+	private static Entry prepare(Entry entry) throws IOException {
+		if (entry.directory)
+			return entry;
+		long fileSize = Files.size(entry.source);
+		CRC32 crc = new CRC32();
+		MessageDigest sha = createDigest();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		if (entry.stored) {
+			if (fileSize <= MEMORY_LIMIT) {
+				entry.data = Files.readAllBytes(entry.source);
+				crc.update(entry.data);
+				sha.update(entry.data);
+				entry.size = entry.data.length;
+			} else {
+				// Large stored files are copied from the source by the writer
+				try (InputStream in = Files.newInputStream(entry.source)) {
+					int read = 0;
+					while ((read = in.read(buffer)) > 0) {
+						crc.update(buffer, 0, read);
+						sha.update(buffer, 0, read);
+						entry.size += read;
+					}
+				}
+				entry.dataFile = entry.source;
+			}
+			entry.compressedSize = entry.size;
+		} else {
+			Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			ByteArrayOutputStream memory = null;
+			OutputStream target = null;
+			if (fileSize <= MEMORY_LIMIT) {
+				memory = new ByteArrayOutputStream((int) Math.max(32, fileSize / 2));
+				target = memory;
+			} else {
+				entry.dataFile = Files.createTempFile("cardcreator-export", ".deflate");
+				entry.temporary = true;
+				target = Files.newOutputStream(entry.dataFile);
+			}
+			try (InputStream in = Files.newInputStream(entry.source);
+					DeflaterOutputStream out = new DeflaterOutputStream(target, deflater, BUFFER_SIZE)) {
+				int read = 0;
+				while ((read = in.read(buffer)) > 0) {
+					crc.update(buffer, 0, read);
+					sha.update(buffer, 0, read);
+					out.write(buffer, 0, read);
+				}
+			} catch (IOException | RuntimeException e) {
+				deflater.end();
+				entry.deleteTemporary();
+				throw e;
+			}
+			entry.size = deflater.getBytesRead();
+			entry.compressedSize = deflater.getBytesWritten();
+			deflater.end();
+			if (entry.compressedSize >= entry.size) {
+				// Incompressible data is stored instead, which is read from the source again
+				entry.deleteTemporary();
+				entry.stored = true;
+				entry.compressedSize = entry.size;
+				if (memory != null)
+					entry.data = Files.readAllBytes(entry.source);
+				else
+					entry.dataFile = entry.source;
+			} else if (memory != null) {
+				entry.data = memory.toByteArray();
+			}
+		}
+		entry.crc = crc.getValue();
+		entry.contentKey = toHex(sha.digest()) + ":" + entry.size;
+		if (entry.size > ZIP_SIZE_LIMIT || entry.compressedSize > ZIP_SIZE_LIMIT) {
+			entry.deleteTemporary();
+			throw new IOException("File " + entry.name + " is too large for a zip archive");
+		}
+		return entry;
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform has to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return sb.toString();
+	}
+
+	private static <T> T get(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private static boolean isStored(String name) {
+		String lower = name.toLowerCase();
+		for (String extension : STORED_EXTENSIONS) {
+			if (lower.endsWith(extension))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Converts a time stamp to the MS-DOS date and time used by zip entries.
+	 */
+	private static int toDosTime(long millis) {
+		Calendar c = Calendar.getInstance();
+		c.setTimeInMillis(millis);
+		int year = c.get(Calendar.YEAR);
+		if (year < 1980)
+			return (1 << 21) | (1 << 16);
+		return (year - 1980) << 25 | (c.get(Calendar.MONTH) + 1) << 21 | c.get(Calendar.DAY_OF_MONTH) << 16
+				| c.get(Calendar.HOUR_OF_DAY) << 11 | c.get(Calendar.MINUTE) << 5 | c.get(Calendar.SECOND) >> 1;
+	}
+
+	/**
+	 * Writes prepared entries to a zip archive. The sizes and checksums are known
+	 * before an entry is written, so no data descriptors are needed.
+	 */
+	private static class ZipWriter implements Closeable {
+
+		private static final int LOCAL_HEADER = 0x04034b50;
+
+		private static final int CENTRAL_HEADER = 0x02014b50;
+
+		private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+		private static final int VERSION = 20;
+
+		/**
+		 * General purpose flag: names are UTF-8 encoded
+		 */
+		private static final int FLAG_UTF8 = 0x0800;
+
+		private static final int DIRECTORY_ATTRIBUTE = 0x10;
+
+		private final OutputStream out;
+
+		private final List<Entry> written = new ArrayList<>();
+
+		private long position = 0;
+
+		public ZipWriter(OutputStream out) {
+			this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+		}
+
+		/**
+		 * Appends an entry and releases its prepared data.
+		 *
+		 * @return Number of bytes written for the entry data
+		 */
+		public long write(Entry entry) throws IOException {
+			try {
+				if (position > ZIP_SIZE_LIMIT)
+					throw new IOException("Project is too large for a zip archive");
+				entry.offset = position;
+				byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+				writeInt(LOCAL_HEADER);
+				writeShort(VERSION);
+				writeShort(FLAG_UTF8);
+				writeShort(entry.stored ? ZipEntry.STORED : ZipEntry.DEFLATED);
+				writeInt(entry.dosTime);
+				writeInt((int) entry.crc);
+				writeInt((int) entry.compressedSize);
+				writeInt((int) entry.size);
+				writeShort(name.length);
+				writeShort(0);
+				writeBytes(name, name.length);
+				if (entry.data != null) {
+					writeBytes(entry.data, entry.data.length);
+				} else if (entry.dataFile != null) {
+					try (InputStream in = Files.newInputStream(entry.dataFile)) {
+						byte[] buffer = new byte[BUFFER_SIZE];
+						long remaining = entry.compressedSize;
+						int read = 0;
+						while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+							writeBytes(buffer, read);
+							remaining -= read;
+						}
+						if (remaining > 0)
+							throw new IOException("File " + entry.name + " changed during the export");
+					}
+				}
+				written.add(entry);
+				return entry.compressedSize;
+			} finally {
+				entry.release();
+			}
+		}
+
+		/**
+		 * Writes the central directory. Has to be called after the last entry.
+		 */
+		public void finish() throws IOException {
+			long start = position;
+			for (Entry entry : written) {
+				byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+				writeInt(CENTRAL_HEADER);
+				writeShort(VERSION);
+				writeShort(VERSION);
+				writeShort(FLAG_UTF8);
+				writeShort(entry.stored ? ZipEntry.STORED : ZipEntry.DEFLATED);
+				writeInt(entry.dosTime);
+				writeInt((int) entry.crc);
+				writeInt((int) entry.compressedSize);
+				writeInt((int) entry.size);
+				writeShort(name.length);
+				writeShort(0);
+				writeShort(0);
+				writeShort(0);
+				writeShort(0);
+				writeInt(entry.directory ? DIRECTORY_ATTRIBUTE : 0);
+				writeInt((int) entry.offset);
+				writeBytes(name, name.length);
+			}
+			long size = position - start;
+			if (start > ZIP_SIZE_LIMIT)
+				throw new IOException("Project is too large for a zip archive");
+			writeInt(END_OF_CENTRAL_DIRECTORY);
+			writeShort(0);
+			writeShort(0);
+			writeShort(written.size());
+			writeShort(written.size());
+			writeInt((int) size);
+			writeInt((int) start);
+			writeShort(0);
+			out.flush();
+		}
+
+		private void writeShort(int v) throws IOException {
+			out.write(v & 0xff);
+			out.write((v >>> 8) & 0xff);
+			position += 2;
+		}
+
+		private void writeInt(int v) throws IOException {
+			writeShort(v & 0xffff);
+			writeShort((v >>> 16) & 0xffff);
+		}
+
+		private void writeBytes(byte[] b, int len) throws IOException {
+			out.write(b, 0, len);
+			position += len;
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,455 @@
+package vv3ird.populatecard.io;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Persistent cache for render results of a project. The cache is stored in the
+ * {@value #FOLDER} folder of the project, so it survives restarts of the
+ * program. Entries are files in a folder per namespace, named after a hash of
+ * everything the result depends on. The layout of the cache is versioned, when
+ * the version changes, the folders of older versions are deleted.<br>
+ * The size of the cache is limited. When it is exceeded, the least recently
+ * used entries are deleted. Recently used images are additionally kept in
+ * memory, up to a limited number of pixels.<br>
+ * All methods are thread safe. Errors are only logged, the cache is never
+ * required to render a card.
+ *
+ * @author VV3IRD
+ *
+ */
+public class RenderCache {
+
+	/**
+	 * Name of the cache folder inside of the project folder
+	 */
+	public static final String FOLDER = "cache";
+
+	/**
+	 * Version of the cache layout, has to be increased whenever cached results are
+	 * created differently
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Default size limit of the cache on disk
+	 */
+	private static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+	/**
+	 * Share of the size limit the cache is reduced to by an eviction
+	 */
+	private static final double EVICTION_TARGET = 0.8;
+
+	/**
+	 * Maximum number of pixels of the images kept in memory
+	 */
+	private static final long MEMORY_PIXELS = 8L * 1024 * 1024;
+
+	private final Path root;
+
+	private final long maxSize;
+
+	private final AtomicLong size = new AtomicLong(-1);
+
+	private final AtomicBoolean evicting = new AtomicBoolean(false);
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private long memoryPixels = 0;
+
+	private final LinkedHashMap<String, BufferedImage> memory = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Hash state after the content of {@link #contentKey(String, Object...)},
+	 * kept as long as the content is referenced, e.g. by the csv data
+	 */
+	private static final Map<String, MessageDigest> contentDigests = new WeakHashMap<>();
+
+	/**
+	 * Opens the cache of a project folder with the default size limit.
+	 *
+	 * @param projectRoot	Project folder
+	 */
+	public RenderCache(Path projectRoot) {
+		this(projectRoot, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Opens the cache of a project folder. Folders of older cache versions are
+	 * deleted.
+	 *
+	 * @param projectRoot	Project folder
+	 * @param maxSize		Size limit of the cache on disk in bytes
+	 */
+	public RenderCache(Path projectRoot, long maxSize) {
+		Path folder = projectRoot.resolve(FOLDER);
+		this.root = folder.resolve("v" + VERSION);
+		this.maxSize = maxSize;
+		if (Files.isDirectory(folder)) {
+			try (Stream<Path> versions = Files.list(folder)) {
+				for (Path version : versions.filter(p -> !p.equals(root)).collect(Collectors.toList())) {
+					System.out.println("Deleting outdated render cache " + version.getFileName());
+					delete(version);
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Creates a cache key from the given parts. The key is the SHA-256 hash of
+	 * the parts, so it can be used as file name.
+	 *
+	 * @param parts	Everything the cached result depends on
+	 * @return Hexadecimal hash of the parts
+	 */
+	public static String key(Object... parts) {
+		MessageDigest sha = newDigest();
+		for (Object part : parts) {
+			update(sha, part);
+		}
+		return toHex(sha);
+	}
+
+	/**
+	 * Creates a cache key from a large content, e.g. a base64 encoded image, and
+	 * further parts. The key is the same as {@link #key(Object...)} of the
+	 * content followed by the parts, but the content is only hashed once, as
+	 * long as it is referenced.
+	 *
+	 * @param content	Content the cached result is created from
+	 * @param parts		Everything else the cached result depends on
+	 * @return Hexadecimal hash of the content and the parts
+	 */
+	public static String contentKey(String content, Object... parts) {
+		MessageDigest prefix;
+		synchronized (contentDigests) {
+			prefix = contentDigests.get(content);
+		}
+		if (prefix == null) {
+			prefix = newDigest();
+			update(prefix, content);
+			synchronized (contentDigests) {
+				contentDigests.put(content, prefix);
+			}
+		}
+		MessageDigest sha;
+		try {
+			synchronized (prefix) {
+				sha = (MessageDigest) prefix.clone();
+			}
+		} catch (CloneNotSupportedException e) {
+			sha = newDigest();
+			update(sha, content);
+		}
+		for (Object part : parts) {
+			update(sha, part);
+		}
+		return toHex(sha);
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform has to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void update(MessageDigest sha, Object part) {
+		sha.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+		// Separator, so ("ab", "c") and ("a", "bc") differ
+		sha.update((byte) 0);
+	}
+
+	private static String toHex(MessageDigest sha) {
+		StringBuilder sb = new StringBuilder(64);
+		for (byte b : sha.digest()) {
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a cached entry.
+	 *
+	 * @param namespace	Kind of the cached result, used as folder name
+	 * @param key		Key of the entry, see {@link #key(Object...)}
+	 * @return Content of the entry, or null, if it is not cached
+	 */
+	public byte[] get(String namespace, String key) {
+		Path file = getFile(namespace, key);
+		try {
+			byte[] data = Files.readAllBytes(file);
+			// The modification time marks the last use for the eviction
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+			hits.incrementAndGet();
+			return data;
+		} catch (IOException e) {
+			misses.incrementAndGet();
+			return null;
+		}
+	}
+
+	/**
+	 * Stores an entry. Concurrent writers of the same key are safe, the entry is
+	 * written to a temporary file and moved into place.
+	 *
+	 * @param namespace	Kind of the cached result, used as folder name
+	 * @param key		Key of the entry, see {@link #key(Object...)}
+	 * @param data		Content of the entry
+	 */
+	public void put(String namespace, String key, byte[] data) {
+		Path file = getFile(namespace, key);
+		Path temp = file.resolveSibling(key + "." + Thread.currentThread().getId() + ".tmp");
+		try {
+			Files.createDirectories(file.getParent());
+			Files.write(temp, data);
+			long replaced = 0;
+			// Writers of the same key must not both count the replaced file as missing
+			synchronized (this) {
+				try {
+					replaced = Files.size(file);
+				} catch (NoSuchFileException e) {
+					// New entry
+				}
+				try {
+					Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			if (getSize() >= 0 && size.addAndGet(data.length - replaced) > maxSize)
+				evict();
+		} catch (IOException e) {
+			System.out.println("Render cache entry " + key + " could not be written: " + e.getMessage());
+			try {
+				Files.deleteIfExists(temp);
+			} catch (IOException e1) {
+			}
+		}
+	}
+
+	/**
+	 * Returns a cached image. Recently used images are returned from memory, the
+	 * others are read from disk.
+	 *
+	 * @param namespace	Kind of the cached image, used as folder name
+	 * @param key		Key of the image, see {@link #key(Object...)}
+	 * @return Cached image, or null, if it is not cached. The image must not be modified.
+	 */
+	public BufferedImage getImage(String namespace, String key) {
+		synchronized (memory) {
+			BufferedImage img = memory.get(namespace + "/" + key);
+			if (img != null) {
+				hits.incrementAndGet();
+				return img;
+			}
+		}
+		byte[] png = get(namespace, key);
+		if (png == null)
+			return null;
+		try {
+			BufferedImage img = ImageIO.read(new ByteArrayInputStream(png));
+			if (img != null)
+				remember(namespace + "/" + key, img);
+			return img;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Stores an image as PNG and keeps it in memory.
+	 *
+	 * @param namespace	Kind of the cached image, used as folder name
+	 * @param key		Key of the image, see {@link #key(Object...)}
+	 * @param img		Image to be cached, must not be modified afterwards
+	 */
+	public void putImage(String namespace, String key, BufferedImage img) {
+		remember(namespace + "/" + key, img);
+		try {
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			ImageIO.write(img, "PNG", os);
+			put(namespace, key, os.toByteArray());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void remember(String key, BufferedImage img) {
+		long pixels = (long) img.getWidth() * img.getHeight();
+		if (pixels > MEMORY_PIXELS / 4)
+			return;
+		synchronized (memory) {
+			BufferedImage old = memory.put(key, img);
+			if (old != null)
+				memoryPixels -= (long) old.getWidth() * old.getHeight();
+			memoryPixels += pixels;
+			Iterator<BufferedImage> it = memory.values().iterator();
+			while (memoryPixels > MEMORY_PIXELS && it.hasNext()) {
+				BufferedImage eldest = it.next();
+				memoryPixels -= (long) eldest.getWidth() * eldest.getHeight();
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Deletes all entries of the cache.
+	 */
+	public void clear() {
+		synchronized (memory) {
+			memory.clear();
+			memoryPixels = 0;
+		}
+		try {
+			delete(root);
+			size.set(0);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Returns a short summary of the cache usage.
+	 *
+	 * @return Summary of the cache usage
+	 */
+	public String getReport() {
+		return String.format("render cache: %d hits, %d misses, %.1f MB", hits.get(), misses.get(),
+				Math.max(0, size.get()) / (1024d * 1024d));
+	}
+
+	private Path getFile(String namespace, String key) {
+		return root.resolve(namespace).resolve(key);
+	}
+
+	/**
+	 * Returns the size of the cache on disk. It is determined once and then kept
+	 * up to date by {@link #put(String, String, byte[])} and {@link #evict()}.
+	 */
+	private long getSize() {
+		long current = size.get();
+		if (current >= 0)
+			return current;
+		long total = 0;
+		for (Path file : listEntries()) {
+			try {
+				total += Files.size(file);
+			} catch (IOException e) {
+			}
+		}
+		size.compareAndSet(-1, total);
+		return size.get();
+	}
+
+	/**
+	 * Deletes the least recently used entries, until the cache is reduced to the
+	 * eviction target. Only one thread evicts at a time. The last uses are read
+	 * once before sorting, as other threads keep updating them while the cache
+	 * is evicted.
+	 */
+	private void evict() {
+		if (!evicting.compareAndSet(false, true))
+			return;
+		try {
+			List<Path> entries = listEntries();
+			Map<Path, Long> lastUse = new HashMap<>(entries.size() * 2);
+			for (Path file : entries) {
+				lastUse.put(file, getLastUse(file));
+			}
+			entries.sort(Comparator.comparingLong(lastUse::get));
+			long total = 0;
+			for (Path file : entries) {
+				try {
+					total += Files.size(file);
+				} catch (IOException e) {
+				}
+			}
+			long target = (long) (maxSize * EVICTION_TARGET);
+			int deleted = 0;
+			for (Path file : entries) {
+				if (total <= target)
+					break;
+				try {
+					long length = Files.size(file);
+					Files.delete(file);
+					total -= length;
+					deleted++;
+				} catch (IOException e) {
+				}
+			}
+			size.set(total);
+			System.out.println("Render cache: evicted " + deleted + " entries, " + (total / 1024) + " KB left");
+		} catch (RuntimeException e) {
+			// A failed eviction must not fail the render that stored the entry
+			System.out.println("Render cache could not be evicted: " + e);
+			e.printStackTrace();
+		} finally {
+			evicting.set(false);
+		}
+	}
+
+	private List<Path> listEntries() {
+		if (!Files.isDirectory(root))
+			return new ArrayList<>();
+		try (Stream<Path> walk = Files.walk(root)) {
+			return walk.filter(p -> Files.isRegularFile(p) && !p.getFileName().toString().endsWith(".tmp"))
+					.collect(Collectors.toList());
+		} catch (IOException e) {
+			e.printStackTrace();
+			return new ArrayList<>();
+		}
+	}
+
+	private static long getLastUse(Path file) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static void delete(Path folder) throws IOException {
+		if (!Files.exists(folder))
+			return;
+		try (Stream<Path> walk = Files.walk(folder)) {
+			List<Path> paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+			for (Path path : paths) {
+				Files.delete(path);
+			}
+		}
+	}
+}